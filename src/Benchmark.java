@@ -0,0 +1,267 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Micro benchmarks of the board and solver code, so every change to it can be measured.
+ * Greenfoot is not needed to run them:
+ * <pre>java Benchmark [-warmup n] [-iterations n] [-time ms] [name filters...]</pre>
+ * Without filters every benchmark is run, otherwise only those whose name contains one
+ * of the filters.
+ * <br>
+ * The benchmarks are run the same way JMH runs them: every benchmark is first run for a
+ * number of warmup iterations, so the JIT compiler has done its work, and then for a
+ * number of measured iterations of a fixed time. The result of every operation is
+ * consumed so the JIT can not remove it. The report shows the operations per second
+ * (mean, min and max over the iterations) and the bytes allocated per operation, from
+ * the allocation counter of the thread (the same counter the JMH GC profiler uses).
+ * <br>
+ * The solver benchmarks clear the transposition table before every operation, so
+ * every solve starts from scratch. They use a small table to make clearing cheap.
+ *
+ * @version 2026-10-18 (Oct 18, 2026)
+ */
+public class Benchmark {
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int MEASUREMENT_ITERATIONS = 5;
+    private static final long ITERATION_MILLIS = 1000;
+    /** Number of entries in the transposition table during the solver benchmarks */
+    private static final int TABLE_SIZE = 1 << 18;
+
+    /** Positions used by the benchmarks, as the columns played (0 to 6) */
+    private static final String OPENING = "3324";
+    private static final String MIDDLE = "6041532563130026";
+    private static final String END = "514451035314030116300525";
+
+    /** Results of the operations end up here, so they can not be optimized away */
+    private static volatile long blackhole;
+
+    /**
+     * One operation of a benchmark
+     */
+    private interface Operation {
+        /**
+         * @return Any value computed by the operation
+         */
+        long run();
+    }
+
+    private static final class Case {
+        final String name;
+        final Operation operation;
+
+        Case(String name, Operation operation) {
+            this.name = name;
+            this.operation = operation;
+        }
+    }
+
+    private final int warmupIterations;
+    private final int measurementIterations;
+    private final long iterationNanos;
+    private final com.sun.management.ThreadMXBean threads;
+
+    /**
+     * @param warmupIterations Number of iterations run before measuring
+     * @param measurementIterations Number of measured iterations
+     * @param iterationMillis Time of every iteration in milliseconds
+     */
+    public Benchmark(int warmupIterations, int measurementIterations, long iterationMillis) {
+        this.warmupIterations = warmupIterations;
+        this.measurementIterations = measurementIterations;
+        this.iterationNanos = iterationMillis * 1_000_000L;
+        this.threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    }
+
+    /**
+     * @param moves Columns played, one digit per move
+     * @return The position after the moves
+     */
+    private static BitBoard position(String moves) {
+        BitBoard bb = new BitBoard();
+        for (int i = 0; i < moves.length(); i++) {
+            bb.makeMove(moves.charAt(i) - '0');
+        }
+        return bb;
+    }
+
+    /**
+     * @param moves Columns played, one digit per move
+     * @return The position after the moves as a game board, black moving first
+     */
+    private static char[][] board(String moves) {
+        char[][] board = new char[6][7];
+        Common.clearBoard(board);
+        char color = Common.BLACK_PIECE;
+        for (int i = 0; i < moves.length(); i++) {
+            Common.dropPiece(board, moves.charAt(i) - '0', color);
+            color = Common.swapPlayer(color);
+        }
+        return board;
+    }
+
+    private static List<Case> cases() {
+        List<Case> cases = new ArrayList<>();
+
+        BitBoard middle = position(MIDDLE);
+        cases.add(new Case("BitBoard.makeMove+undoMove", new Operation() {
+            int column;
+
+            public long run() {
+                column = (column + 1) % 7;
+                middle.makeMove(column);
+                middle.undoMove();
+                return column;
+            }
+        }));
+        long board = middle.getPlayer0Board();
+        cases.add(new Case("BitBoard.isWin", () -> BitBoard.isWin(board) ? 1 : 0));
+        cases.add(new Case("BitBoard.isWinningMove", new Operation() {
+            int column;
+
+            public long run() {
+                column = (column + 1) % 7;
+                return middle.isWinningMove(column) ? 1 : 0;
+            }
+        }));
+        cases.add(new Case("BitBoard.listMoves", () -> middle.listMoves()[3]));
+
+        char[][] gameBoard = board(MIDDLE);
+        cases.add(new Case("Common.checkForWinner", () -> Common.checkForWinner(gameBoard)));
+        cases.add(new Case("Common.duplicateBoard", () -> Common.duplicateBoard(gameBoard)[5][3]));
+        // A drop fills the board column after column, and the board is cleared once it is full
+        char[][] dropBoard = new char[6][7];
+        Common.clearBoard(dropBoard);
+        cases.add(new Case("Common.dropPiece", new Operation() {
+            int moves;
+
+            public long run() {
+                if (moves++ == 42) {
+                    Common.clearBoard(dropBoard);
+                    moves = 1;
+                }
+                return Common.dropPiece(dropBoard, moves % 7, Common.BLACK_PIECE);
+            }
+        }));
+        char[][] dropBitBoard = new char[6][7];
+        Common.clearBoard(dropBitBoard);
+        BitBoard dropBits = new BitBoard();
+        cases.add(new Case("Common.dropPiece(BitBoard)", new Operation() {
+            public long run() {
+                if (dropBits.getTurnCount() == 42) {
+                    Common.clearBoard(dropBitBoard);
+                    dropBits.reset();
+                }
+                return Common.dropPiece(dropBitBoard, dropBits, (dropBits.getTurnCount() + 1) % 7, Common.BLACK_PIECE);
+            }
+        }));
+
+        BitBoard solveMiddle = position(MIDDLE);
+        BitBoard solveEnd = position(END);
+        cases.add(new Case("Solver.negamax(middle)", () -> {
+            Solver.clearTable();
+            return Solver.negamax(solveMiddle, -1, 1);
+        }));
+        cases.add(new Case("Solver.solve(middle)", () -> {
+            Solver.clearTable();
+            return Solver.solve(solveMiddle, 0);
+        }));
+        cases.add(new Case("Solver.solve(end)", () -> {
+            Solver.clearTable();
+            return Solver.solve(solveEnd, 0);
+        }));
+        BitBoard opening = position(OPENING);
+        cases.add(new Case("Solver.customSolve(opening, 10 ms)", () -> Solver.customSolve(opening, 42, 10_000_000L)[3]));
+        return cases;
+    }
+
+    /**
+     * Run one benchmark and print its results
+     */
+    private void run(Case c) {
+        Operation operation = c.operation;
+        long threadId = Thread.currentThread().getId();
+
+        // Find a batch size that takes about a millisecond, so reading the clock costs nothing
+        int batch = 1;
+        while (batch < 1 << 20) {
+            long start = System.nanoTime();
+            long sum = 0;
+            for (int i = 0; i < batch; i++) {
+                sum += operation.run();
+            }
+            blackhole = sum;
+            if (System.nanoTime() - start > 1_000_000L) {
+                break;
+            }
+            batch *= 2;
+        }
+
+        double[] rates = new double[measurementIterations];
+        long totalOps = 0;
+        long totalBytes = 0;
+        for (int iteration = -warmupIterations; iteration < measurementIterations; iteration++) {
+            long bytes = threads.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+            long end = start + iterationNanos;
+            long ops = 0;
+            long sum = 0;
+            long now;
+            do {
+                for (int i = 0; i < batch; i++) {
+                    sum += operation.run();
+                }
+                ops += batch;
+                now = System.nanoTime();
+            } while (now - end < 0);
+            blackhole = sum;
+            if (iteration >= 0) {
+                rates[iteration] = ops * 1e9 / (now - start);
+                totalOps += ops;
+                totalBytes += threads.getThreadAllocatedBytes(threadId) - bytes;
+            }
+        }
+
+        double mean = 0;
+        double min = Double.MAX_VALUE;
+        double max = 0;
+        for (double rate : rates) {
+            mean += rate / rates.length;
+            min = Math.min(min, rate);
+            max = Math.max(max, rate);
+        }
+        System.out.printf("%-36s %16.1f %16.1f %16.1f %12.1f%n", c.name, mean, min, max, (double) totalBytes / totalOps);
+    }
+
+    public static void main(String[] args) {
+        int warmup = WARMUP_ITERATIONS;
+        int iterations = MEASUREMENT_ITERATIONS;
+        long millis = ITERATION_MILLIS;
+        List<String> filters = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-warmup")) {
+                warmup = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-iterations")) {
+                iterations = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-time")) {
+                millis = Long.parseLong(args[++i]);
+            } else {
+                filters.add(args[i]);
+            }
+        }
+
+        Solver.setTableSize(TABLE_SIZE);
+        Solver.setOpeningBook(null); // Measure the search, not the book
+        Benchmark benchmark = new Benchmark(warmup, iterations, millis);
+        System.out.printf("%-36s %16s %16s %16s %12s%n", "Benchmark", "ops/s", "min ops/s", "max ops/s", "B/op");
+        for (Case c : cases()) {
+            boolean selected = filters.isEmpty();
+            for (String filter : filters) {
+                selected |= c.name.contains(filter);
+            }
+            if (selected) {
+                benchmark.run(c);
+            }
+        }
+    }
+}
@@ -1,4 +1,8 @@
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
 /*
  * This file was written as I read through https://github.com/denkspuren/BitboardC4/blob/master/BitboardDesign.md,
  * a very helpful explanation of how to store a Connect4 game state in a long.  It also implements some techniques
@@ -23,12 +27,44 @@ class BitBoard {
 
     // #region Attributes
 
+    /**
+     * The bit above the top of every column. A column is full once its
+     * {@link #_height height} reaches this bit.
+     */
+    private static final long TOP_MASK = 0b1000000_1000000_1000000_1000000_1000000_1000000_1000000L;
+
+    /**
+     * The bit at the bottom of every column.
+     */
+    private static final long BOTTOM_MASK = 0b0000001_0000001_0000001_0000001_0000001_0000001_0000001L;
+
+    /**
+     * Every bit that is part of the board (the six rows of every column).
+     */
+    private static final long BOARD_MASK = BOTTOM_MASK * 0b111111;
+
+    /**
+     * Bit distance between neighbouring tokens: vertical, horizontal and the two diagonals.
+     */
+    private static final int[] DIRECTIONS = { 1, 7, 6, 8 };
+
+    /**
+     * Most positions searched for the moves of a converted game board before giving up.
+     */
+    private static final int RECOVER_LIMIT = 1 << 16;
+
     /**
      * This is an array of two longs. The first when read in binary stores the
      * positions of Player 0, the second of Player 1.
      */
     private final long[] _bb = { 0, 0 };
 
+    /**
+     * The same as {@link #_bb}, mirrored left to right (column 0 is column 6).
+     * Kept up to date by every move, so the mirrored key costs nothing.
+     */
+    private final long[] _mirror = { 0, 0 };
+
     /**
      * This array stores the next index for a move to be played in each column.
      * It's initialized to the bit at the bottom of each column.
@@ -73,6 +109,14 @@ class BitBoard {
         return _moves;
     }
 
+    /**
+     * @param col The column, 0 to 6.
+     * @return How many tokens are in the column.
+     */
+    public int getHeight(int col) {
+        return _height[col] - 7 * col;
+    }
+
     /**
      * @return How many moves have been played so far.
      */
@@ -105,16 +149,62 @@ class BitBoard {
      */
     public int[] listMoves() {
         int[] moves = new int[7];
-        long OVERFLOW = 0b1000000_1000000_1000000_1000000_1000000_1000000_1000000L;
+        long playable = playableMoves();
         for (int i = 0; i < moves.length; i++) {
-            moves[i] = -1;
-            if ((OVERFLOW & (1L << _height[i])) == 0) {
-                moves[i] = i;
-            }
+            moves[i] = (playable & columnMask(i)) != 0 ? i : -1;
         }
         return moves;
     }
 
+    /**
+     * Returns the playable moves without allocating anything. Every playable column
+     * has exactly one bit set: the position the next token in that column would take.
+     * Use {@link #columnMask(int)} to test a column, or iterate over the bits with
+     * {@link #nextMove(long)} and {@link #column(long)}:
+     * <pre>
+     * for (long moves = bb.playableMoves(); moves != 0; moves ^= BitBoard.nextMove(moves)) {
+     *     int col = BitBoard.column(BitBoard.nextMove(moves));
+     * }
+     * </pre>
+     *
+     * @return A mask with one bit for every column that is not full.
+     */
+    public long playableMoves() {
+        return ((_bb[0] | _bb[1]) + BOTTOM_MASK) & BOARD_MASK;
+    }
+
+    /**
+     * @param col The column, 0 to 6.
+     * @return A mask of every position in the column.
+     */
+    public static long columnMask(int col) {
+        return 0b111111L << (7 * col);
+    }
+
+    /**
+     * @param moves A mask of moves, as returned by {@link #playableMoves()}.
+     * @return The lowest move in the mask, or 0 if it is empty.
+     */
+    public static long nextMove(long moves) {
+        return moves & -moves;
+    }
+
+    /**
+     * @param move A mask with a single move.
+     * @return The column of the move.
+     */
+    public static int column(long move) {
+        return Long.numberOfTrailingZeros(move) / 7;
+    }
+
+    /**
+     * @param col The column to check, 0 to 6.
+     * @return True if the column is not full yet.
+     */
+    public boolean canPlay(int col) {
+        return (TOP_MASK & (1L << _height[col])) == 0;
+    }
+
     /**
      * @return True if it is Player 0's turn, False if it is Player 1's turn.
      */
@@ -135,14 +225,59 @@ class BitBoard {
      * @return True if the bitboard contains a win.
      */
     public static boolean isWin(long bitboard) {
-        int[] directions = { 1, 7, 6, 8 };
-        long bb;
-        for (int i : directions) {
-            bb = bitboard & (bitboard >> i);
-            if ((bb & (bb >> (2 * i))) != 0)
-                return true;
+        long bb = bitboard & (bitboard >> 1); // vertical
+        if ((bb & (bb >> 2)) != 0)
+            return true;
+        bb = bitboard & (bitboard >> 7); // horizontal
+        if ((bb & (bb >> 14)) != 0)
+            return true;
+        bb = bitboard & (bitboard >> 6); // diagonal \
+        if ((bb & (bb >> 12)) != 0)
+            return true;
+        bb = bitboard & (bitboard >> 8); // diagonal /
+        return (bb & (bb >> 16)) != 0;
+    }
+
+    /**
+     * Checks only the lines through a single token, so it is much cheaper than
+     * {@link #isWin(long)} when the last move is known.
+     *
+     * @param bitboard The tokens of one player, including the token to check.
+     * @param move     A mask with the single token to check.
+     * @return A mask of four tokens in a row that include the token, or 0 if the
+     *         token is not part of four in a row.
+     */
+    public static long winningLine(long bitboard, long move) {
+        for (int d : DIRECTIONS) {
+            long line = move;
+            long b = move;
+            for (int i = 0; i < 3 && (b = (b << d) & bitboard) != 0; i++) {
+                line |= b;
+            }
+            b = move;
+            for (int i = 0; i < 3 && (b = (b >>> d) & bitboard) != 0; i++) {
+                line |= b;
+            }
+            if (Long.bitCount(line) >= 4) {
+                // Of a longer line, the lowest four that still include the token
+                int start = Math.max(Long.numberOfTrailingZeros(line), Long.numberOfTrailingZeros(move) - 3 * d);
+                long first = 1L << start;
+                return first | (first << d) | (first << (2 * d)) | (first << (3 * d));
+            }
         }
-        return false;
+        return 0;
+    }
+
+    /**
+     * @return A mask of the four tokens in a row made by the last move, or 0 if
+     *         the last move did not win (or is not known).
+     */
+    public long lastMoveWinningLine() {
+        if (_counter == 0 || _moves[_counter - 1] < 0) {
+            return 0;
+        }
+        long move = 1L << (_height[_moves[_counter - 1]] - 1);
+        return BitBoard.winningLine(_bb[(_counter - 1) & 1], move);
     }
 
     /**
@@ -171,14 +306,68 @@ class BitBoard {
         if (col < 0 || col > 6) {
             return false;
         }
-        int[] moves = listMoves();
-        if (moves[col] == -1) {
+        if (!canPlay(col)) {
             return false;
         }
-        makeMove(col);
-        long toCheck = (currentTurn() ? getPlayer1Board() : getPlayer0Board());
-        undoMove();
-        return BitBoard.isWin(toCheck);
+        return BitBoard.isWin(_bb[_counter & 1] | (1L << _height[col]));
+    }
+
+    /**
+     * @return True if the {@link #currentTurn() current player} has a move that
+     *         wins the game.
+     */
+    public boolean canWinNext() {
+        long current = _bb[_counter & 1];
+        for (long moves = playableMoves(); moves != 0; moves ^= nextMove(moves)) {
+            if (BitBoard.isWin(current | nextMove(moves))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return A mask of the empty positions that would complete four in a row for
+     *         the {@link #currentTurn() current player}, playable now or not.
+     */
+    public long currentThreats() {
+        return BitBoard.winningPositions(_bb[_counter & 1], _bb[0] | _bb[1]);
+    }
+
+    /**
+     * @return A mask of the empty positions that would complete four in a row for
+     *         the opponent of the {@link #currentTurn() current player}.
+     */
+    public long opponentThreats() {
+        return BitBoard.winningPositions(_bb[(_counter + 1) & 1], _bb[0] | _bb[1]);
+    }
+
+    /**
+     * @param move A mask with a single playable move.
+     * @return How many empty positions would complete four in a row for the
+     *         {@link #currentTurn() current player} after the move.
+     */
+    public int moveThreats(long move) {
+        return Long.bitCount(BitBoard.winningPositions(_bb[_counter & 1] | move, _bb[0] | _bb[1] | move));
+    }
+
+    /**
+     * @param position The tokens of one player.
+     * @param mask     Every token on the board.
+     * @return A mask of the empty positions that would complete four in a row.
+     */
+    static long winningPositions(long position, long mask) {
+        // Vertical, only upwards
+        long r = (position << 1) & (position << 2) & (position << 3);
+        for (int d = 6; d <= 8; d++) { // Diagonal, horizontal and the other diagonal
+            long p = (position << d) & (position << (2 * d));
+            r |= p & (position << (3 * d));
+            r |= p & (position >>> d);
+            p = (position >>> d) & (position >>> (2 * d));
+            r |= p & (position << d);
+            r |= p & (position >>> (3 * d));
+        }
+        return r & (BOARD_MASK ^ mask);
     }
 
      /**
@@ -187,9 +376,47 @@ class BitBoard {
     public long generateKey(){
         return (_bb[0] | _bb[1]) + (currentTurn() ? _bb[0] : _bb[1]);
     }
+
+    /**
+     * A position and its mirror image have the same score, so both get the same key.
+     *
+     * @return The smaller of {@link #generateKey()} and the key of the mirrored position.
+     */
+    public long canonicalKey() {
+        long mirrorKey = (_mirror[0] | _mirror[1]) + _mirror[_counter & 1];
+        return Math.min(generateKey(), mirrorKey);
+    }
+
+    /**
+     * Mirrors a bitboard left to right, so column 0 becomes column 6.
+     *
+     * @param bitboard The bitboard to mirror.
+     * @return The mirrored bitboard.
+     */
+    private static long mirror(long bitboard) {
+        long mirrored = 0;
+        for (int col = 0; col < 7; col++) {
+            mirrored |= ((bitboard >>> (7 * col)) & 0x7F) << (7 * (6 - col));
+        }
+        return mirrored;
+    }
     // #endregion
 
     // #region Modifiers
+    /**
+     * Removes every token, so the board is the same as a new {@link BitBoard}.
+     */
+    public void reset() {
+        _bb[0] = 0;
+        _bb[1] = 0;
+        _mirror[0] = 0;
+        _mirror[1] = 0;
+        for (int i = 0; i < _height.length; i++) {
+            _height[i] = 7 * i;
+        }
+        _counter = 0;
+    }
+
     /**
      * Makes a move in our BitBoard. Notably, does not need to know whose turn it
      * is.
@@ -205,18 +432,26 @@ class BitBoard {
      * @param c The specified column to add a token to.
      */
     public void makeMove(int c) {
-        this._bb[_counter & 1] ^= (1L << _height[c]++);
+        int bit = _height[c]++;
+        this._bb[_counter & 1] ^= (1L << bit);
+        _mirror[_counter & 1] ^= (1L << (bit + 42 - 14 * c)); // Same row, column 6 - c
         _moves[_counter++] = c;
     }
 
     /**
-     * This is pretty much the inverse of {@link #makeMove()}.
+     * This is pretty much the inverse of {@link #makeMove(int)}.
      * Get the last move made, find the last token in that column,
      * move a one into that position, and exclusive or it to get rid
      * of the token in that position.
      */
     void undoMove() {
-        _bb[--_counter & 1] ^= (1L << --_height[_moves[_counter]]);
+        if (_moves[_counter - 1] < 0) {
+            throw new IllegalStateException("The move before the conversion from a game board is not known");
+        }
+        int c = _moves[--_counter];
+        int bit = --_height[c];
+        _bb[_counter & 1] ^= (1L << bit);
+        _mirror[_counter & 1] ^= (1L << (bit + 42 - 14 * c));
     }
     // #endregion
 
@@ -247,8 +482,89 @@ class BitBoard {
         }
     }
 
-    BitBoard(char[][] board) {
+    /**
+     * Creates a {@link BitBoard} from a game board as used by the game engine
+     * ({@code board[0]} is the top row). It is assumed to be {@code color}'s turn,
+     * so the pieces of that color go to the player whose turn it is and every other
+     * piece goes to the opponent.
+     * <br>
+     * The order in which the pieces were played is not known, so an order of moves that
+     * leads to the position is worked out instead: the players take turns, every piece
+     * lands on the one below it, and the position after every move is one a game can pass
+     * through (apart from who has four in a row). Undoing the moves made before the
+     * conversion goes back through those positions, and {@link #generateKey()} works as
+     * for any other board. A position that no such order leads to (for example one with
+     * too many pieces of one color) keeps -1 in {@link #getMoves()} for the moves before
+     * the conversion, and undoing one of them throws an IllegalStateException. Moves made
+     * afterwards can always be made and undone.
+     *
+     * @param board      The game board, 6 rows of 7 columns.
+     * @param color      The color of the player whose turn it is.
+     * @param emptySpace The character used for an empty space.
+     */
+    BitBoard(char[][] board, char color, char emptySpace) {
         this();
+        long current = 0;
+        long opponent = 0;
+        for (int col = 0; col < 7; col++) {
+            int bit = col * 7;
+            for (int row = board.length - 1; row >= 0 && board[row][col] != emptySpace; row--) {
+                if (board[row][col] == color) {
+                    current |= 1L << bit;
+                } else {
+                    opponent |= 1L << bit;
+                }
+                bit++;
+            }
+            _height[col] = bit;
+        }
+        _counter = Long.bitCount(current | opponent);
+        _bb[_counter & 1] = current;
+        _bb[(_counter + 1) & 1] = opponent;
+        _mirror[_counter & 1] = BitBoard.mirror(current);
+        _mirror[(_counter + 1) & 1] = BitBoard.mirror(opponent);
+        // Player 0 moved first, so it has as many pieces as player 1 or one more
+        boolean counts = Long.bitCount(_bb[0]) == (_counter + 1) / 2;
+        if (!counts || !recoverMoves(_counter, new HashSet<>())) {
+            Arrays.fill(_moves, 0, _counter, -1);
+        }
+    }
+
+    /**
+     * Searches backwards for an order of moves that leads to the position: the last mover
+     * takes a piece off the top of a column, then the other player, until the board is
+     * empty. The order found is stored in {@link #_moves}, and the board is unchanged.
+     *
+     * @param count The number of pieces left on the board.
+     * @param dead  Keys of the positions already searched without success, which can be
+     *              reached by taking the pieces off in another order.
+     * @return True if an order was found.
+     */
+    private boolean recoverMoves(int count, Set<Long> dead) {
+        if (count == 0) {
+            return true;
+        }
+        long key = (_bb[0] | _bb[1]) + _bb[0];
+        if (dead.size() >= RECOVER_LIMIT || dead.contains(key)) {
+            return false;
+        }
+        int player = (count - 1) & 1;
+        for (int c = 0; c < _height.length; c++) {
+            long top = 1L << (_height[c] - 1);
+            if (_height[c] > 7 * c && (_bb[player] & top) != 0) {
+                _bb[player] ^= top;
+                _height[c]--;
+                _moves[count - 1] = c;
+                boolean found = recoverMoves(count - 1, dead);
+                _height[c]++;
+                _bb[player] ^= top;
+                if (found) {
+                    return true;
+                }
+            }
+        }
+        dead.add(key);
+        return false;
     }
 
     /**
@@ -258,9 +574,13 @@ class BitBoard {
      */
     BitBoard(BitBoard bb) {
         this(bb.getXNum(), bb.getONum());
-        for (int i = 0; i < bb.getTurnCount(); i++) {
-            makeMove(bb.getMoves()[i]);
-        }
+        _bb[0] = bb._bb[0];
+        _bb[1] = bb._bb[1];
+        _mirror[0] = bb._mirror[0];
+        _mirror[1] = bb._mirror[1];
+        System.arraycopy(bb._height, 0, _height, 0, _height.length);
+        System.arraycopy(bb._moves, 0, _moves, 0, bb._counter);
+        _counter = bb._counter;
     }
     // #endregion
 
@@ -0,0 +1,135 @@
+/**
+ * Read-only view of the game being played by the {@link GameEngine}. Unlike the
+ * board given to {@link Player#play(char[][])}, this is not a copy: it shows the
+ * engine's own board, so giving it to a player costs nothing.
+ * <br>
+ * The position is available as two bitboards (one per color) in the layout of
+ * {@link BitBoard}: bit {@code 7 * column + row} with row 0 at the bottom. The number
+ * of pieces in every column and the list of moves played are available as well.
+ * A {@code char[][]} in the usual form is only built when {@link #toArray()} is called.
+ * <br>
+ * The view follows the game, so it must only be used during the call to
+ * {@link BoardViewPlayer#play(BoardView)}. Use {@link #toBitBoard()} to get a board
+ * that can be modified, for example to search.
+ *
+ * @version 2026-10-18 (Oct 18, 2026)
+ */
+public class BoardView {
+    /** The engine's board */
+    private final BitBoard bits;
+    /** Color of the player that moved first, whose pieces are player 0 of the bitboard */
+    private char firstPlayer;
+    private final char emptySpace;
+
+    BoardView(BitBoard bits, char emptySpace) {
+        this.bits = bits;
+        this.emptySpace = emptySpace;
+    }
+
+    void setFirstPlayer(char firstPlayer) {
+        this.firstPlayer = firstPlayer;
+    }
+
+    /**
+     * @param color Color of the pieces
+     * @return Bitboard with a bit set for every piece of that color
+     */
+    public long getBoard(char color) {
+        return color == firstPlayer ? bits.getPlayer0Board() : bits.getPlayer1Board();
+    }
+
+    /**
+     * @return Bitboard with a bit set for every piece on the board
+     */
+    public long getMask() {
+        return bits.getPlayer0Board() | bits.getPlayer1Board();
+    }
+
+    /**
+     * @return Color of the player whose turn it is
+     */
+    public char getTurn() {
+        return bits.currentTurn() ? firstPlayer : Common.swapPlayer(firstPlayer);
+    }
+
+    /**
+     * @param column Column 0 to 6
+     * @return Number of pieces in the column
+     */
+    public int getHeight(int column) {
+        return bits.getHeight(column);
+    }
+
+    /**
+     * @param column Column 0 to 6
+     * @return If another piece can be dropped in the column
+     */
+    public boolean canPlay(int column) {
+        return bits.canPlay(column);
+    }
+
+    /**
+     * @return Number of moves played so far
+     */
+    public int getMoveCount() {
+        return bits.getTurnCount();
+    }
+
+    /**
+     * @param i Number of the move, starting at 0 for the first move of the game
+     * @return Column the move was played in
+     */
+    public int getMove(int i) {
+        if (i < 0 || i >= bits.getTurnCount()) {
+            throw new IndexOutOfBoundsException("Move " + i + " has not been played");
+        }
+        return bits.getMoves()[i];
+    }
+
+    /**
+     * Piece at a position, using the same coordinates as the {@code char[][]} board
+     * @param row Row 0 (top) to 5 (bottom)
+     * @param column Column 0 to 6
+     * @return Color of the piece or the empty space character
+     */
+    public char getPiece(int row, int column) {
+        long bit = 1L << (7 * column + 5 - row);
+        if ((bits.getPlayer0Board() & bit) != 0) {
+            return firstPlayer;
+        }
+        if ((bits.getPlayer1Board() & bit) != 0) {
+            return Common.swapPlayer(firstPlayer);
+        }
+        return emptySpace;
+    }
+
+    /**
+     * Builds the board in the form given to {@link Player#play(char[][])}
+     * @return New game board
+     */
+    public char[][] toArray() {
+        char[][] board = new char[6][7];
+        for (int row = 0; row < board.length; row++) {
+            for (int column = 0; column < board[row].length; column++) {
+                board[row][column] = getPiece(row, column);
+            }
+        }
+        return board;
+    }
+
+    /**
+     * @return View of a copy of the position, which does not follow the game
+     */
+    BoardView snapshot() {
+        BoardView snapshot = new BoardView(new BitBoard(bits), emptySpace);
+        snapshot.setFirstPlayer(firstPlayer);
+        return snapshot;
+    }
+
+    /**
+     * @return Copy of the position with the full move history, for searching
+     */
+    public BitBoard toBitBoard() {
+        return new BitBoard(bits);
+    }
+}
@@ -0,0 +1,19 @@
+/**
+ * Optional interface for a {@link Player} that wants to see the board without it
+ * being copied. When a player implements this interface, the game engine calls
+ * {@link #play(BoardView)} instead of {@link Player#play(char[][])}.
+ * <br>
+ * {@link Player#play(char[][])} must still be implemented, since other code may
+ * still call it with a copy of the board.
+ *
+ * @version 2026-10-18 (Oct 18, 2026)
+ */
+public interface BoardViewPlayer {
+    /**
+     * Determine the next move to be played
+     * @param view Read-only view of the current state of the board. It is only
+     *             valid until this method returns.
+     * @return position to place piece
+     */
+    int play(BoardView view);
+}
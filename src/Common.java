@@ -1,6 +1,6 @@
 import java.lang.reflect.InvocationTargetException;
 import java.util.Arrays;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Common code for Connect 4 games
@@ -12,10 +12,11 @@ public class Common {
     public static final char BLACK_PIECE = 'b';
     public static final char RED_PIECE = 'r';
 
-    private static final Random RANDOM = new Random();
+    /** Every four in a row as a {@link BitBoard} mask, in the order {@link #checkForWinner(char[][])} checks them */
+    private static final long[] FOURS = fours();
 
     protected static char randomPlayer() {
-        if (RANDOM.nextInt(2) == 1) {
+        if (ThreadLocalRandom.current().nextInt(2) == 1) {
             return BLACK_PIECE;
         }
         return RED_PIECE;
@@ -37,7 +38,11 @@ public class Common {
      * @return Duplicated board
      */
     public static char[][] duplicateBoard(char[][] matrix) {
-        return java.util.Arrays.stream(matrix).map(char[]::clone).toArray($ -> matrix.clone());
+        char[][] copy = new char[matrix.length][];
+        for (int i = 0; i < matrix.length; i++) {
+            copy[i] = matrix[i].clone();
+        }
+        return copy;
     }
 
     public static void clearBoard(char[][] board) {
@@ -46,6 +51,30 @@ public class Common {
         }
     }
 
+    /**
+     * Drop piece onto the game board in constant time. The heights of the columns are
+     * taken from a bitboard of the same game, which is updated as well.
+     * @param gameBoard Game board
+     * @param bits The same game as a bitboard
+     * @param column Column to place the piece, an illegal or full column is replaced
+     *               by a random column that is not full
+     * @param color Color of the piece being placed
+     * @return Column the piece was dropped in
+     */
+    protected static int dropPiece(char[][] gameBoard, BitBoard bits, int column, char color) {
+        if (column < 0 || column >= gameBoard[0].length || !bits.canPlay(column)) {
+            // Pick one of the columns that are not full
+            long moves = bits.playableMoves();
+            for (int n = ThreadLocalRandom.current().nextInt(Long.bitCount(moves)); n > 0; n--) {
+                moves ^= BitBoard.nextMove(moves);
+            }
+            column = BitBoard.column(BitBoard.nextMove(moves));
+        }
+        gameBoard[gameBoard.length - 1 - bits.getHeight(column)][column] = color;
+        bits.makeMove(column);
+        return column;
+    }
+
     /**
      * Drop piece onto the game board
      * @param column Column to place the piece
@@ -54,9 +83,9 @@ public class Common {
      */
     protected static int dropPiece(char[][] gameBoard, int column, char color) {
         // If column is invalid or is already full, determine new column
-        if (column < 0 || column > gameBoard[0].length || gameBoard[0][column] != EMPTY_SPACE) {
+        if (column < 0 || column >= gameBoard[0].length || gameBoard[0][column] != EMPTY_SPACE) {
             for (int i = 0; i < 10; i++) {
-                column = RANDOM.nextInt(7);
+                column = ThreadLocalRandom.current().nextInt(7);
                 if (gameBoard[0][column] == EMPTY_SPACE) {
                     break;
                 }
@@ -65,7 +94,7 @@ public class Common {
         // If random placement fails, use the first available column
         if (gameBoard[0][column] != EMPTY_SPACE) {
             for (int i = 0; i < gameBoard[0].length; i++) {
-                if (gameBoard[0][column] == EMPTY_SPACE) {
+                if (gameBoard[0][i] == EMPTY_SPACE) {
                     column = i;
                     break;
                 }
@@ -155,6 +184,72 @@ public class Common {
         return EMPTY_SPACE;
     }
 
+    /**
+     * Check to see if there is a winner on a board kept as two bitboards in the layout of
+     * {@link BitBoard}. The result is the same as {@link #checkForWinner(char[][])} on the
+     * same board: if both players have four in a row, the one it finds first wins.
+     * @param board1 Pieces of the first player
+     * @param color1 Color of the first player
+     * @param board2 Pieces of the second player
+     * @param color2 Color of the second player
+     * @return Winner's piece color or EMPTY_SPACE for no win
+     */
+    public static char checkForWinner(long board1, char color1, long board2, char color2) {
+        boolean win1 = BitBoard.isWin(board1);
+        boolean win2 = BitBoard.isWin(board2);
+        if (win1 && win2) {
+            for (long four : FOURS) {
+                if ((board1 & four) == four) {
+                    return color1;
+                }
+                if ((board2 & four) == four) {
+                    return color2;
+                }
+            }
+        }
+        return win1 ? color1 : win2 ? color2 : EMPTY_SPACE;
+    }
+
+    /**
+     * @return Every four in a row: rows from the bottom, then columns, then both diagonals
+     */
+    private static long[] fours() {
+        long[] fours = new long[69];
+        int n = 0;
+        for (int row = 5; row >= 0; row--) {
+            for (int col = 0; col < 4; col++) {
+                fours[n++] = four(row, col, 0, 1);
+            }
+        }
+        for (int col = 0; col < 7; col++) {
+            for (int row = 2; row >= 0; row--) {
+                fours[n++] = four(row, col, 1, 0);
+            }
+        }
+        for (int row = 2; row >= 0; row--) {
+            for (int col = 0; col < 4; col++) {
+                fours[n++] = four(row, col, 1, 1);
+            }
+        }
+        for (int row = 2; row >= 0; row--) {
+            for (int col = 6; col >= 3; col--) {
+                fours[n++] = four(row, col, 1, -1);
+            }
+        }
+        return fours;
+    }
+
+    /**
+     * @return Mask of four spaces starting at a row (0 is the top) and column of the game board
+     */
+    private static long four(int row, int col, int rowStep, int colStep) {
+        long four = 0;
+        for (int i = 0; i < 4; i++) {
+            four |= 1L << (7 * (col + i * colStep) + 5 - (row + i * rowStep));
+        }
+        return four;
+    }
+
     /**
      * Check if there is a tie
      * @param gameBoard Game board to check
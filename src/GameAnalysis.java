@@ -0,0 +1,408 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Finds the mistakes in recorded games (see {@link GameRecordWriter}). Every position of
+ * every game is solved with {@link Solver#solve(BitBoard, int)}, and a move is a mistake
+ * when its score is lower than the score of the best move. A mistake is a blunder when
+ * it changes the result: a won position that is no longer won, or a drawn position that
+ * is now lost.
+ * <br>
+ * The same position often comes up in many games, and a position and its mirror image
+ * have the same score, so every position is solved once, by
+ * {@link BitBoard#canonicalKey()}. The positions are solved on all cores with a
+ * fork/join pool, the positions with the most moves first, because those are fast and
+ * fill the transposition table for the others. Early positions are only fast with an
+ * {@link OpeningBook}; -first skips the opening moves of every game.
+ * <pre>java GameAnalysis [-threads n] [-first n] [-mistakes file] files...</pre>
+ * The number of moves, mistakes and blunders of every player is printed. With -mistakes
+ * every mistake is written to a file.
+ *
+ * @version 2026-10-18 (Oct 18, 2026)
+ */
+public class GameAnalysis {
+    /** Number of positions solved by one fork/join task */
+    private static final int BATCH_SIZE = 16;
+
+    private final List<GameRecord> games = new ArrayList<>();
+    /** Number of moves at the start of every game that are not analyzed */
+    private final int firstMove;
+
+    /** Every position to solve, by canonical key */
+    private final PositionIndex index = new PositionIndex();
+    /** Game and number of moves of a game in which each position comes up */
+    private int[] positionGame = new int[1024];
+    private byte[] positionPly = new byte[1024];
+    /** Score of every position */
+    private byte[] scores;
+
+    /**
+     * @param firstMove Number of moves at the start of every game that are not analyzed
+     */
+    public GameAnalysis(int firstMove) {
+        this.firstMove = firstMove;
+    }
+
+    /**
+     * Mistakes of one player
+     */
+    public static class PlayerStats {
+        private final String player;
+        private long moves;
+        private long mistakes;
+        private long blunders;
+        /** Sum of the score lost by every move */
+        private long scoreLost;
+
+        PlayerStats(String player) {
+            this.player = player;
+        }
+
+        public String getPlayer() {
+            return player;
+        }
+
+        public long getMoves() {
+            return moves;
+        }
+
+        public long getMistakes() {
+            return mistakes;
+        }
+
+        public long getBlunders() {
+            return blunders;
+        }
+
+        /**
+         * @return Percentage of the moves that were blunders
+         */
+        public double blunderPercentage() {
+            return moves == 0 ? 0 : blunders * 100.0 / moves;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-24s %10d %10d %9.2f%% %10d %9.2f%% %10.3f", player, moves, mistakes,
+                    moves == 0 ? 0 : mistakes * 100.0 / moves, blunders, blunderPercentage(),
+                    moves == 0 ? 0 : (double) scoreLost / moves);
+        }
+    }
+
+    /**
+     * Add the games of a game record file
+     * @param file Game record file
+     */
+    public void read(Path file) throws IOException {
+        try (GameRecordReader reader = new GameRecordReader(file)) {
+            for (GameRecord game = reader.read(); game != null; game = reader.read()) {
+                addPositions(game, games.size());
+                games.add(game);
+            }
+        }
+    }
+
+    /**
+     * Add the positions of a game that have to be solved: every position from firstMove
+     * on in which the game is not over yet.
+     */
+    private void addPositions(GameRecord game, int gameIndex) {
+        BitBoard bb = new BitBoard();
+        for (int ply = 0; ply <= game.getMoveCount(); ply++) {
+            if (ply >= firstMove) {
+                int count = index.size();
+                int id = index.add(bb.canonicalKey());
+                if (index.size() > count) { // Seen for the first time
+                    if (id == positionPly.length) {
+                        positionGame = Arrays.copyOf(positionGame, 2 * id);
+                        positionPly = Arrays.copyOf(positionPly, 2 * id);
+                    }
+                    positionGame[id] = gameIndex;
+                    positionPly[id] = (byte) ply;
+                }
+            }
+            if (ply == game.getMoveCount()) {
+                break;
+            }
+            bb.makeMove(game.getMove(ply));
+            if (bb.lastMoveWinningLine() != 0 || bb.isDraw()) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Solve every position
+     * @param threads Number of threads
+     */
+    public void solve(int threads) {
+        int count = index.size();
+        // Sort the positions by number of moves, most moves first
+        int[] plyCount = new int[43];
+        for (int i = 0; i < count; i++) {
+            plyCount[positionPly[i]]++;
+        }
+        int[] next = new int[43];
+        for (int ply = 41; ply >= 0; ply--) {
+            next[ply] = next[ply + 1] + plyCount[ply + 1];
+        }
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[next[positionPly[i]]++] = i;
+        }
+
+        scores = new byte[count];
+        AtomicInteger solved = new AtomicInteger();
+        long begin = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.invoke(new SolveTask(order, 0, count, solved, begin));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Solves a range of the positions, splitting it in two until it is small
+     */
+    private class SolveTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] order;
+        private final int from;
+        private final int to;
+        private final AtomicInteger solved;
+        private final long begin;
+
+        SolveTask(int[] order, int from, int to, AtomicInteger solved, long begin) {
+            this.order = order;
+            this.from = from;
+            this.to = to;
+            this.solved = solved;
+            this.begin = begin;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > BATCH_SIZE) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new SolveTask(order, from, middle, solved, begin),
+                        new SolveTask(order, middle, to, solved, begin));
+                return;
+            }
+            BitBoard bb = new BitBoard();
+            for (int i = from; i < to; i++) {
+                int id = order[i];
+                GameRecord game = games.get(positionGame[id]);
+                bb.reset();
+                for (int ply = 0; ply < positionPly[id]; ply++) {
+                    bb.makeMove(game.getMove(ply));
+                }
+                scores[id] = (byte) Solver.solve(bb, 0);
+            }
+            int done = solved.addAndGet(to - from);
+            if (done / 100_000 != (done - (to - from)) / 100_000) {
+                System.out.printf("%d / %d positions solved (%.1f s)%n", done, order.length,
+                        (System.nanoTime() - begin) / 1e9);
+            }
+        }
+    }
+
+    /**
+     * Score every move of every game, after {@link #solve(int)}
+     * @param mistakes Where to write every mistake, or null
+     * @return Statistics of every player, in the order they were first seen
+     */
+    public List<PlayerStats> analyze(PrintWriter mistakes) {
+        Map<String, PlayerStats> players = new LinkedHashMap<>();
+        BitBoard bb = new BitBoard();
+        for (int g = 0; g < games.size(); g++) {
+            GameRecord game = games.get(g);
+            bb.reset();
+            for (int ply = 0; ply < game.getMoveCount(); ply++) {
+                int column = game.getMove(ply);
+                if (ply < firstMove) {
+                    bb.makeMove(column);
+                    continue;
+                }
+                int best = scores[index.get(bb.canonicalKey())];
+                bb.makeMove(column);
+                int played;
+                if (bb.lastMoveWinningLine() != 0) {
+                    played = (43 - ply) / 2;
+                } else if (bb.isDraw()) {
+                    played = 0;
+                } else {
+                    played = -scores[index.get(bb.canonicalKey())];
+                }
+
+                char color = game.getMover(ply);
+                String name = game.getPlayer(color) + " (" + game.getPlayerClass(color) + ")";
+                PlayerStats stats = players.computeIfAbsent(name, PlayerStats::new);
+                stats.moves++;
+                if (played < best) {
+                    stats.mistakes++;
+                    stats.scoreLost += best - played;
+                    if (Integer.signum(played) < Integer.signum(best)) {
+                        stats.blunders++;
+                    }
+                    if (mistakes != null) {
+                        StringBuilder moves = new StringBuilder();
+                        for (int i = 0; i < ply; i++) {
+                            moves.append(game.getMove(i));
+                        }
+                        mistakes.printf("game %d move %d %s played %d: score %d, best %d, moves before %s%n", g,
+                                ply + 1, game.getPlayer(color), column, played, best, moves);
+                    }
+                }
+                if (bb.lastMoveWinningLine() != 0) {
+                    break;
+                }
+            }
+        }
+        return new ArrayList<>(players.values());
+    }
+
+    /**
+     * @return Number of games read
+     */
+    public int getGameCount() {
+        return games.size();
+    }
+
+    /**
+     * @return Number of different positions to solve
+     */
+    public int getPositionCount() {
+        return index.size();
+    }
+
+    /**
+     * Hash table from position key to the number of the position, without boxing, so
+     * millions of positions fit in memory
+     */
+    private static final class PositionIndex {
+        private static final long EMPTY = -1;
+
+        private long[] keys = new long[1 << 16];
+        private int[] ids = new int[1 << 16];
+        private int size;
+
+        PositionIndex() {
+            Arrays.fill(keys, EMPTY);
+        }
+
+        /**
+         * @return The number of the key, adding it if it is new
+         */
+        int add(long key) {
+            int slot = slot(key);
+            if (keys[slot] == key) {
+                return ids[slot];
+            }
+            keys[slot] = key;
+            ids[slot] = size;
+            if (++size * 2 > keys.length) {
+                grow();
+            }
+            return size - 1;
+        }
+
+        /**
+         * @return The number of the key, -1 if it was never added
+         */
+        int get(long key) {
+            int slot = slot(key);
+            return keys[slot] == key ? ids[slot] : -1;
+        }
+
+        int size() {
+            return size;
+        }
+
+        /**
+         * @return The slot holding the key, or the empty slot where it belongs
+         */
+        private int slot(long key) {
+            int mask = keys.length - 1;
+            int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+            while (keys[slot] != EMPTY && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldIds = ids;
+            keys = new long[2 * oldKeys.length];
+            ids = new int[2 * oldKeys.length];
+            Arrays.fill(keys, EMPTY);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    int slot = slot(oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    ids[slot] = oldIds[i];
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        int first = 0;
+        Path mistakesFile = null;
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-threads")) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-first")) {
+                first = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-mistakes")) {
+                mistakesFile = Paths.get(args[++i]);
+            } else {
+                files.add(Paths.get(args[i]));
+            }
+        }
+        if (files.isEmpty()) {
+            System.out.println("Usage: java GameAnalysis [-threads n] [-first n] [-mistakes file] <game record files...>");
+            System.exit(2);
+        }
+
+        GameAnalysis analysis = new GameAnalysis(first);
+        for (Path file : files) {
+            analysis.read(file);
+        }
+        System.out.println(analysis.getGameCount() + " games, " + analysis.getPositionCount() + " positions to solve");
+
+        long start = System.nanoTime();
+        analysis.solve(threads);
+        System.out.printf("Solved in %.3f s%n", (System.nanoTime() - start) / 1e9);
+
+        List<PlayerStats> players;
+        if (mistakesFile == null) {
+            players = analysis.analyze(null);
+        } else {
+            try (PrintWriter mistakes = new PrintWriter(Files.newBufferedWriter(mistakesFile))) {
+                players = analysis.analyze(mistakes);
+            }
+        }
+        players.sort((x, y) -> Double.compare(y.blunderPercentage(), x.blunderPercentage()));
+        System.out.printf("%-24s %10s %10s %10s %10s %10s %10s%n", "Player", "Moves", "Mistakes", "Mistake %",
+                "Blunders", "Blunder %", "Lost/move");
+        for (PlayerStats stats : players) {
+            System.out.println(stats);
+        }
+    }
+}
@@ -0,0 +1,575 @@
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Connect 4 game engine without any graphics. It handles all game logic and keeps the
+ * win / tie statistics, so games can be played as fast as the players allow.
+ * {@link Connect4} uses this engine and only adds the graphics on top of it.
+ * <br>
+ * To run a match series from the command line (Greenfoot is not needed):
+ * <pre>java GameEngine PlayerEric PlayerEricHS 10000 [move ms] [game ms] [increment ms]</pre>
+ *
+ * @version 2026-10-18 (Oct 18, 2026)
+ */
+public class GameEngine {
+    /** Do ties get included in statistics */
+    public static final boolean COUNT_TIES = true;
+
+    /** Connect 4 game board */
+    private final char[][] gameBoard;
+    /** The same game as a bitboard, shown to players through {@link #view} */
+    private final BitBoard bits;
+    /** Read-only view of the game for players that implement {@link BoardViewPlayer} */
+    private final BoardView view;
+
+    /** Current players turn (Black = BLACK_PIECE, Red = RED_PIECE) */
+    private char playerTurn;
+    private char firstPlayerTurn;
+
+    /** Winner of the current game, EMPTY_SPACE while nobody has won */
+    private char winner;
+    /** The winning four pieces as a {@link BitBoard} mask, 0 while nobody has won */
+    private long winningLine;
+
+    /** Black player */
+    private final Player playerBlack;
+
+    /** Red player */
+    private final Player playerRed;
+
+    private int playerBlackWinTotal;
+    private int playerRedWinTotal;
+    private int tieCounter;
+
+    /** Time control for the players, null to let players take as long as they want */
+    private TimeControl timeControl;
+    /** Threads that call the players when there is a time control (black, red) */
+    private final ExecutorService[] movers = new ExecutorService[2];
+    /** Calls given to the movers that have not returned yet (black, red) */
+    private final AtomicInteger[] pendingCalls = { new AtomicInteger(), new AtomicInteger() };
+    /** Time left on the game clocks in nanoseconds (black, red) */
+    private final long[] remainingNanos = new long[2];
+    /** Total time used by the players in nanoseconds (black, red) */
+    private final long[] timeUsedNanos = new long[2];
+    /** Number of moves made by the players (black, red) */
+    private final int[] moveCounter = new int[2];
+    /** Number of moves forfeited by running out of time (black, red) */
+    private final int[] timeoutCounter = new int[2];
+    /** Wall time, CPU time and allocation of every move (black, red) */
+    private final MoveMetrics[] metrics = { new MoveMetrics(), new MoveMetrics() };
+    /** Where finished games are written, null to not record them */
+    private GameRecordWriter recorder;
+    /** Ids of the players in the {@link #recorder} (black, red), -1 until the first game is written */
+    private final int[] recorderIds = { -1, -1 };
+    /** Measurement of the current move when there is no time control */
+    private final MoveMetrics.Sample sample = new MoveMetrics.Sample();
+
+    /**
+     * Constructs board and initializes players with provided player classes
+     * @param black Class of the black player
+     * @param red Class of the red player
+     */
+    public GameEngine(Class<?> black, Class<?> red) {
+        this(constructPlayer(black), constructPlayer(red));
+    }
+
+    /**
+     * Constructs board with already constructed players
+     * @param black Black player
+     * @param red Red player
+     */
+    public GameEngine(Player black, Player red) {
+        gameBoard = new char[6][7];
+        Common.clearBoard(gameBoard);
+        bits = new BitBoard();
+        view = new BoardView(bits, Common.EMPTY_SPACE);
+        firstPlayerTurn = Common.randomPlayer(); //randomize who starts the game
+        playerTurn = firstPlayerTurn;
+        winner = Common.EMPTY_SPACE;
+
+        playerBlack = black;
+        playerRed = red;
+
+        playerBlackWinTotal = 0;
+        playerRedWinTotal = 0;
+        tieCounter = 0;
+    }
+
+    private static Player constructPlayer(Class<?> playerClass) {
+        try {
+            return Common.constructPlayer(playerClass);
+        } catch (InvocationTargetException e) {
+            throw new RuntimeException(e);
+        } catch (InstantiationException e) {
+            throw new RuntimeException(e);
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException(e);
+        } catch (NoSuchMethodException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Start a new game. This includes clearing the board and resetting the players
+     */
+    public void newGame() {
+        // swap who plays first
+        firstPlayerTurn = Common.swapPlayer(firstPlayerTurn);
+        playerTurn = firstPlayerTurn;
+
+        // clear the game board
+        Common.clearBoard(gameBoard);
+        bits.reset();
+        view.setFirstPlayer(firstPlayerTurn);
+        winner = Common.EMPTY_SPACE;
+        winningLine = 0;
+
+        // reset the game clocks
+        if (timeControl != null) {
+            remainingNanos[0] = remainingNanos[1] = timeControl.getGameMillis() * 1_000_000L;
+        }
+
+        // Let players know that it is a new game
+        startGame(playerBlack, 0, firstPlayerTurn == Common.BLACK_PIECE);
+        startGame(playerRed, 1, firstPlayerTurn == Common.RED_PIECE);
+    }
+
+    /**
+     * Call a player's newGame. A player that is still busy with a move it ran out of time
+     * for is told on its own thread once that move returns, so it is never called twice
+     * at the same time.
+     */
+    private void startGame(Player player, int index, boolean firstMove) {
+        if (pendingCalls[index].get() == 0) {
+            player.newGame(firstMove);
+            return;
+        }
+        pendingCalls[index].incrementAndGet();
+        movers[index].execute(() -> {
+            try {
+                player.newGame(firstMove);
+            } finally {
+                pendingCalls[index].decrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * Choose who moves first in the next game. The side that moves first still
+     * alternates in the games after it.
+     * @param color Color of the player that moves first in the next game
+     */
+    public void setNextFirstPlayer(char color) {
+        firstPlayerTurn = Common.swapPlayer(color); // newGame swaps it back
+    }
+
+    /**
+     * Have the next player make their move
+     * @return Column the piece was dropped in
+     */
+    public int play() {
+        int column = -1;
+        char color = playerTurn;
+        int index = clockIndex(color);
+        playerTurn = Common.swapPlayer(playerTurn);
+        long start = System.nanoTime();
+        if (timeControl == null && pendingCalls[index].get() == 0) {
+            try {
+                Player player = getPlayer(color);
+                char[][] board = player instanceof BoardViewPlayer ? null : duplicateBoard();
+                column = askPlayer(player, view, board, sample); // Get player's move
+            } catch (Exception ignored) {} // Exceptions are treated as a forfeited turn
+            metrics[index].record(sample);
+        } else {
+            long budget = timeControl == null ? Long.MAX_VALUE : timeControl.moveBudgetNanos(remainingNanos[index]);
+            column = playWithDeadline(color, budget);
+        }
+        long elapsed = System.nanoTime() - start;
+        timeUsedNanos[index] += elapsed;
+        moveCounter[index]++;
+        if (timeControl != null && timeControl.hasGameClock()) {
+            remainingNanos[index] -= elapsed;
+            remainingNanos[index] += timeControl.getIncrementMillis() * 1_000_000L;
+        }
+        column = Common.dropPiece(gameBoard, bits, column, color);
+
+        // Only the last piece can have made four in a row
+        winningLine = bits.lastMoveWinningLine();
+        if (winningLine != 0) {
+            winner = color;
+        }
+        return column;
+    }
+
+    /**
+     * Get a player's move. Players that implement {@link BoardViewPlayer} get a view of
+     * the board, all others get a copy of it (copied by the caller, before the measurement starts).
+     * @param player Player whose turn it is
+     * @param view View of the board given to a {@link BoardViewPlayer}
+     * @param board Copy of the board given to other players
+     * @param sample Measurement of the call, made on the calling thread
+     * @return Player's move
+     */
+    private static int askPlayer(Player player, BoardView view, char[][] board, MoveMetrics.Sample sample) {
+        if (player instanceof BoardViewPlayer) {
+            sample.start();
+            try {
+                return ((BoardViewPlayer) player).play(view);
+            } finally {
+                sample.stop();
+            }
+        }
+        sample.start();
+        try {
+            return player.play(board);
+        } finally {
+            sample.stop();
+        }
+    }
+
+    /**
+     * Ask a player for its move on a separate thread and wait at most until the deadline.
+     * Running out of time is treated as a forfeited turn, the same as an exception.
+     * The player keeps its thread, and it forfeits its turns until the call it ran out
+     * of time for returns, so a player is never called twice at the same time.
+     * @param color Color of the player
+     * @param budgetNanos Time the player has for this move
+     * @return Player's move or -1 if the turn was forfeited
+     */
+    private int playWithDeadline(char color, long budgetNanos) {
+        int index = clockIndex(color);
+        if (budgetNanos <= 0 || pendingCalls[index].get() > 0) {
+            timeoutCounter[index]++; // No time left on the clock, or still busy with an earlier move
+            return -1;
+        }
+        if (movers[index] == null) {
+            movers[index] = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "Player " + getPlayer(color).getName());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        Player player = getPlayer(color);
+        // A player that runs out of time may still be using its sample and board,
+        // so every move gets a new sample and a copy of the board
+        MoveMetrics.Sample moveSample = new MoveMetrics.Sample();
+        BoardView snapshot = player instanceof BoardViewPlayer ? view.snapshot() : null;
+        char[][] board = player instanceof BoardViewPlayer ? null : duplicateBoard();
+        pendingCalls[index].incrementAndGet();
+        Future<Integer> move = movers[index].submit(() -> {
+            try {
+                return askPlayer(player, snapshot, board, moveSample);
+            } finally {
+                pendingCalls[index].decrementAndGet();
+            }
+        });
+        try {
+            int column = move.get(budgetNanos, TimeUnit.NANOSECONDS);
+            metrics[index].record(moveSample);
+            return column;
+        } catch (TimeoutException e) {
+            // The player keeps running on its thread and forfeits its turns until it returns
+            timeoutCounter[index]++;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            metrics[index].record(moveSample); // Exceptions are treated as a forfeited turn
+        }
+        return -1;
+    }
+
+    private static int clockIndex(char color) {
+        return color == Common.BLACK_PIECE ? 0 : 1;
+    }
+
+    /**
+     * Set the time control. The game clocks are reset to the full game time.
+     * @param timeControl Time control or null to let players take as long as they want
+     */
+    public void setTimeControl(TimeControl timeControl) {
+        this.timeControl = timeControl;
+        if (timeControl != null) {
+            remainingNanos[0] = remainingNanos[1] = timeControl.getGameMillis() * 1_000_000L;
+        }
+    }
+
+    public TimeControl getTimeControl() {
+        return timeControl;
+    }
+
+    /**
+     * Record every finished game from now on. The recorder can be shared by several
+     * engines and is not closed by the engine.
+     * @param recorder Where to write the games, or null to stop recording
+     */
+    public void setRecorder(GameRecordWriter recorder) {
+        this.recorder = recorder;
+        recorderIds[0] = recorderIds[1] = -1;
+    }
+
+    /**
+     * Stop the threads used to call the players. Only needed when a time control is used.
+     */
+    public void close() {
+        for (int i = 0; i < movers.length; i++) {
+            if (movers[i] != null) {
+                movers[i].shutdownNow();
+                movers[i] = null;
+            }
+        }
+    }
+
+    /**
+     * Play a complete game, starting with {@link #newGame()}, and record the result
+     * @return Winner's piece color or EMPTY_SPACE for a tie
+     */
+    public char playGame() {
+        newGame();
+        char winner = checkForWinner();
+        while (winner == Common.EMPTY_SPACE && !tie()) {
+            play();
+            winner = checkForWinner();
+        }
+        recordResult(winner);
+        return winner;
+    }
+
+    /**
+     * Play a series of complete games
+     * @param games Number of games to play
+     */
+    public void playGames(int games) {
+        for (int i = 0; i < games; i++) {
+            playGame();
+        }
+    }
+
+    /**
+     * Update the statistics with the result of a game, and write the game if there is a recorder
+     * @param player Player that won or EMPTY_SPACE for a tie
+     */
+    public void recordResult(char player) {
+        if (player == Common.BLACK_PIECE) {
+            playerBlackWinTotal++;
+        } else if (player == Common.RED_PIECE) {
+            playerRedWinTotal++;
+        } else {
+            tieCounter++;
+        }
+        if (recorder != null) {
+            try {
+                if (recorderIds[0] < 0) {
+                    recorderIds[0] = recorder.playerId(playerBlack);
+                    recorderIds[1] = recorder.playerId(playerRed);
+                }
+                recorder.write(recorderIds[0], recorderIds[1], firstPlayerTurn, player, bits.getMoves(),
+                        bits.getTurnCount());
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /**
+     * Duplicates the game board to prevent cheating
+     * @return Duplicate game board
+     */
+    private char[][] duplicateBoard() {
+        return Common.duplicateBoard(this.gameBoard);
+    }
+
+    /**
+     * Check to see if there is a winner. The winner is found when the piece is dropped,
+     * so this does not look at the board.
+     * @return Winner's piece color or EMPTY_SPACE for no win
+     */
+    public char checkForWinner() {
+        return winner;
+    }
+
+    /**
+     * The four pieces in a row that won the game. Bit {@code 7 * column + row} is set
+     * for every piece, with row 0 at the bottom (the layout of {@link BitBoard}).
+     * @return Mask of the winning pieces or 0 if nobody has won
+     */
+    public long getWinningLine() {
+        return winningLine;
+    }
+
+    /**
+     * Check if there is a tie.
+     * @return if there is a tie
+     */
+    public boolean tie() {
+        return bits.isDraw();
+    }
+
+    /**
+     * Get the player for a piece color
+     * @param color BLACK_PIECE or RED_PIECE
+     * @return Player using that color
+     */
+    public Player getPlayer(char color) {
+        return color == Common.BLACK_PIECE ? playerBlack : playerRed;
+    }
+
+    /**
+     * Get the live game board. This is not a copy and must not be modified.
+     * @return Game board
+     */
+    public char[][] getGameBoard() {
+        return gameBoard;
+    }
+
+    /**
+     * Get a read-only view of the game, the same one given to players that
+     * implement {@link BoardViewPlayer}.
+     * @return Board view
+     */
+    public BoardView getView() {
+        return view;
+    }
+
+    /**
+     * @return Color of the player whose turn it is
+     */
+    public char getPlayerTurn() {
+        return playerTurn;
+    }
+
+    public int getWinTotal(char player) {
+        return player == Common.BLACK_PIECE ? playerBlackWinTotal : playerRedWinTotal;
+    }
+
+    public int getTieTotal() {
+        return tieCounter;
+    }
+
+    /**
+     * Total time a player has used for its moves
+     * @param player BLACK_PIECE or RED_PIECE
+     * @return Time in nanoseconds
+     */
+    public long getTimeUsed(char player) {
+        return timeUsedNanos[clockIndex(player)];
+    }
+
+    /**
+     * @param player BLACK_PIECE or RED_PIECE
+     * @return Number of moves the player has made
+     */
+    public int getMoveTotal(char player) {
+        return moveCounter[clockIndex(player)];
+    }
+
+    /**
+     * @param player BLACK_PIECE or RED_PIECE
+     * @return Number of moves the player forfeited by running out of time
+     */
+    public int getTimeoutTotal(char player) {
+        return timeoutCounter[clockIndex(player)];
+    }
+
+    /**
+     * Wall time, CPU time and allocation of the moves of a player. Moves that ran out of
+     * time are only counted as timeouts.
+     * @param player BLACK_PIECE or RED_PIECE
+     * @return Metrics of the player's moves
+     */
+    public MoveMetrics getMetrics(char player) {
+        return metrics[clockIndex(player)];
+    }
+
+    /**
+     * @return Total number of games that have been recorded
+     */
+    public int getGamesPlayed() {
+        return playerBlackWinTotal + playerRedWinTotal + tieCounter;
+    }
+
+    /**
+     * Win percentage of a player, rounded to one decimal place
+     * @param player BLACK_PIECE or RED_PIECE
+     * @return Win percentage
+     */
+    public double winPercentage(char player) {
+        return percentage(getWinTotal(player));
+    }
+
+    /**
+     * Tie percentage, rounded to one decimal place. Only meaningful if COUNT_TIES is set.
+     * @return Tie percentage
+     */
+    public double tiePercentage() {
+        return percentage(tieCounter);
+    }
+
+    private double percentage(int count) {
+        int games = playerBlackWinTotal + playerRedWinTotal;
+        if (COUNT_TIES) {
+            games += tieCounter;
+        }
+        return Math.round((count * 1000f) / games) / 10.0;
+    }
+
+    /**
+     * Summary of the statistics in the same form as shown by {@link Connect4}
+     * @return Statistics report
+     */
+    public String report() {
+        String s = "Games played : " + getGamesPlayed() + "\n";
+        s += playerBlack.getName() + " (black) Wins: " + playerBlackWinTotal + " " + winPercentage(Common.BLACK_PIECE) + "%\n";
+        s += playerRed.getName() + " (red) Wins: " + playerRedWinTotal + " " + winPercentage(Common.RED_PIECE) + "%\n";
+        s += "Ties: " + tieCounter;
+        if (COUNT_TIES) {
+            s += " " + tiePercentage() + "%";
+        }
+        s += "\n" + timeReport(playerBlack, Common.BLACK_PIECE);
+        s += "\n" + timeReport(playerRed, Common.RED_PIECE);
+        s += "\n" + MoveMetrics.HEADER;
+        s += "\n" + getMetrics(Common.BLACK_PIECE).report(playerBlack.getName());
+        s += "\n" + getMetrics(Common.RED_PIECE).report(playerRed.getName());
+        return s;
+    }
+
+    private String timeReport(Player player, char color) {
+        int moves = getMoveTotal(color);
+        double seconds = getTimeUsed(color) / 1e9;
+        return String.format("%s time used: %.3f s (%.3f ms per move), timeouts: %d", player.getName(),
+                seconds, moves == 0 ? 0 : seconds * 1000 / moves, getTimeoutTotal(color));
+    }
+
+    /**
+     * Run a match series without graphics.
+     * @param args Black player class, red player class, optionally the number of games (default 1000)
+     *             and the time control in milliseconds (move, game and increment)
+     */
+    public static void main(String[] args) throws ClassNotFoundException {
+        if (args.length < 2) {
+            System.out.println("Usage: java GameEngine <black player class> <red player class> [games] [move ms] [game ms] [increment ms]");
+            return;
+        }
+        int games = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        GameEngine engine = new GameEngine(Class.forName(args[0]), Class.forName(args[1]));
+        if (args.length > 3) {
+            engine.setTimeControl(new TimeControl(Long.parseLong(args[3]),
+                    args.length > 4 ? Long.parseLong(args[4]) : 0,
+                    args.length > 5 ? Long.parseLong(args[5]) : 0));
+        }
+
+        long start = System.nanoTime();
+        engine.playGames(games);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        engine.close();
+
+        System.out.println(engine.report());
+        System.out.printf("%.3f s (%.0f games/s)%n", seconds, games / seconds);
+    }
+}
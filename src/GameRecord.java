@@ -0,0 +1,143 @@
+/**
+ * One finished game as stored by {@link GameRecordWriter} and returned by
+ * {@link GameRecordReader}: the players, who moved first, the columns played and the
+ * result.
+ * <br>
+ * File layout (big-endian): the magic and the version as ints, then records that each
+ * start with a type byte.
+ * <ul>
+ * <li>{@link #PLAYER}: id as a short, then the class name and the name of the player,
+ * each as a short length and UTF-8 bytes. The id stands for that player in the games
+ * that follow, until it is defined again.</li>
+ * <li>{@link #GAME}: flags (bit 0 set if red moved first, bits 1 and 2 the result: 0
+ * tie, 1 black won, 2 red won), the number of moves, the ids of the black and the red
+ * player as shorts, then the columns packed 3 bits each, starting with the low bits of
+ * the first byte. A game of 42 moves takes 23 bytes.</li>
+ * </ul>
+ *
+ * @version 2026-10-18 (Oct 18, 2026)
+ */
+public class GameRecord {
+    static final int MAGIC = 0x43344752; // "C4GR"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 8;
+    /** Record type of a player definition */
+    static final byte PLAYER = 1;
+    /** Record type of a game */
+    static final byte GAME = 2;
+    /** Size of a game record without its moves */
+    static final int GAME_SIZE = 7;
+
+    private final String blackPlayer;
+    private final String blackClass;
+    private final String redPlayer;
+    private final String redClass;
+    private final char firstPlayer;
+    private final char winner;
+    private final byte[] moves;
+
+    /**
+     * @param blackPlayer Name of the black player
+     * @param blackClass Class name of the black player
+     * @param redPlayer Name of the red player
+     * @param redClass Class name of the red player
+     * @param firstPlayer Color of the player that moved first
+     * @param winner Color of the winner or EMPTY_SPACE for a tie
+     * @param moves Columns played, in order
+     * @param moveCount Number of moves played
+     */
+    public GameRecord(String blackPlayer, String blackClass, String redPlayer, String redClass, char firstPlayer,
+                      char winner, int[] moves, int moveCount) {
+        this(blackPlayer, blackClass, redPlayer, redClass, firstPlayer, winner, pack(moves, moveCount));
+    }
+
+    GameRecord(String blackPlayer, String blackClass, String redPlayer, String redClass, char firstPlayer,
+               char winner, byte[] moves) {
+        this.blackPlayer = blackPlayer;
+        this.blackClass = blackClass;
+        this.redPlayer = redPlayer;
+        this.redClass = redClass;
+        this.firstPlayer = firstPlayer;
+        this.winner = winner;
+        this.moves = moves;
+    }
+
+    private static byte[] pack(int[] moves, int moveCount) {
+        if (moveCount < 0 || moveCount > 42) {
+            throw new IllegalArgumentException("A game has 0 to 42 moves, not " + moveCount);
+        }
+        byte[] columns = new byte[moveCount];
+        for (int i = 0; i < moveCount; i++) {
+            if (moves[i] < 0 || moves[i] > 6) {
+                throw new IllegalArgumentException("Move " + i + " is not a column: " + moves[i]);
+            }
+            columns[i] = (byte) moves[i];
+        }
+        return columns;
+    }
+
+    /**
+     * @param player BLACK_PIECE or RED_PIECE
+     * @return Name of the player
+     */
+    public String getPlayer(char player) {
+        return player == Common.BLACK_PIECE ? blackPlayer : redPlayer;
+    }
+
+    /**
+     * @param player BLACK_PIECE or RED_PIECE
+     * @return Class name of the player
+     */
+    public String getPlayerClass(char player) {
+        return player == Common.BLACK_PIECE ? blackClass : redClass;
+    }
+
+    /**
+     * @return Color of the player that moved first
+     */
+    public char getFirstPlayer() {
+        return firstPlayer;
+    }
+
+    /**
+     * @return Color of the winner or EMPTY_SPACE for a tie
+     */
+    public char getWinner() {
+        return winner;
+    }
+
+    /**
+     * @return Number of moves played
+     */
+    public int getMoveCount() {
+        return moves.length;
+    }
+
+    /**
+     * @param i Number of the move, starting at 0 for the first move of the game
+     * @return Column the move was played in
+     */
+    public int getMove(int i) {
+        return moves[i];
+    }
+
+    /**
+     * @param i Number of the move
+     * @return Color of the player that made the move
+     */
+    public char getMover(int i) {
+        return i % 2 == 0 ? firstPlayer : Common.swapPlayer(firstPlayer);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (byte move : moves) {
+            sb.append(move);
+        }
+        String result = winner == Common.BLACK_PIECE ? blackPlayer + " won"
+                : winner == Common.RED_PIECE ? redPlayer + " won" : "tie";
+        return blackPlayer + " (black) vs " + redPlayer + " (red), "
+                + (firstPlayer == Common.BLACK_PIECE ? "black" : "red") + " first: " + sb + " " + result;
+    }
+}
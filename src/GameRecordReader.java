@@ -0,0 +1,195 @@
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads the games of a game record file (see {@link GameRecord} for the layout) one at
+ * a time. Only a small buffer of the file is in memory, so files with millions of games
+ * can be read.
+ * <pre>
+ * try (GameRecordReader reader = new GameRecordReader(file)) {
+ *     for (GameRecord game = reader.read(); game != null; game = reader.read()) {
+ *         ...
+ *     }
+ * }
+ * </pre>
+ * To print the games in a file:
+ * <pre>java GameRecordReader file</pre>
+ *
+ * @version 2026-10-18 (Oct 18, 2026)
+ */
+public class GameRecordReader implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    /** Names of the players by id, class name at 2 * id and name at 2 * id + 1 */
+    private String[] players = new String[32];
+
+    /**
+     * @param file The game record file.
+     */
+    public GameRecordReader(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            checkHeader(channel);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        } catch (RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        channel.position(GameRecord.HEADER_SIZE);
+        buffer.flip();
+    }
+
+    /**
+     * Checks that a file starts with the header of a game record file.
+     */
+    static void checkHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(GameRecord.HEADER_SIZE);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0) {
+                throw new IllegalArgumentException("Not a game record file");
+            }
+        }
+        if (header.getInt(0) != GameRecord.MAGIC) {
+            throw new IllegalArgumentException("Not a game record file");
+        }
+        if (header.getInt(4) != GameRecord.VERSION) {
+            throw new IllegalArgumentException("Unsupported game record version " + header.getInt(4));
+        }
+    }
+
+    /**
+     * @return The next game, or null at the end of the file.
+     */
+    public GameRecord read() throws IOException {
+        while (true) {
+            if (!buffer.hasRemaining() && !fill(1)) {
+                return null;
+            }
+            byte type = buffer.get();
+            if (type == GameRecord.PLAYER) {
+                readPlayer();
+            } else if (type == GameRecord.GAME) {
+                return readGame();
+            } else {
+                throw new IOException("Unknown record type " + type);
+            }
+        }
+    }
+
+    private void readPlayer() throws IOException {
+        require(2);
+        int id = buffer.getShort() & 0xFFFF;
+        String className = readString();
+        String name = readString();
+        if (2 * id + 1 >= players.length) {
+            players = Arrays.copyOf(players, Math.max(2 * players.length, 2 * id + 2));
+        }
+        players[2 * id] = className;
+        players[2 * id + 1] = name;
+    }
+
+    private String readString() throws IOException {
+        require(2);
+        int length = buffer.getShort();
+        require(length);
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private GameRecord readGame() throws IOException {
+        require(GameRecord.GAME_SIZE - 1);
+        int flags = buffer.get();
+        int moveCount = buffer.get();
+        int black = buffer.getShort() & 0xFFFF;
+        int red = buffer.getShort() & 0xFFFF;
+        if (moveCount < 0 || moveCount > 42) {
+            throw new IOException("A game has 0 to 42 moves, not " + moveCount);
+        }
+        if (2 * Math.max(black, red) + 1 >= players.length || players[2 * black] == null || players[2 * red] == null) {
+            throw new IOException("Game of a player that was not defined");
+        }
+
+        require((3 * moveCount + 7) / 8);
+        byte[] moves = new byte[moveCount];
+        int bits = 0;
+        int bitCount = 0;
+        for (int i = 0; i < moveCount; i++) {
+            if (bitCount < 3) {
+                bits |= (buffer.get() & 0xFF) << bitCount;
+                bitCount += 8;
+            }
+            moves[i] = (byte) (bits & 7);
+            bits >>>= 3;
+            bitCount -= 3;
+        }
+
+        char firstPlayer = (flags & 1) == 0 ? Common.BLACK_PIECE : Common.RED_PIECE;
+        int result = flags >> 1 & 3;
+        char winner = result == 1 ? Common.BLACK_PIECE : result == 2 ? Common.RED_PIECE : Common.EMPTY_SPACE;
+        return new GameRecord(players[2 * black + 1], players[2 * black], players[2 * red + 1], players[2 * red],
+                firstPlayer, winner, moves);
+    }
+
+    /**
+     * Makes sure the buffer holds the rest of a record.
+     */
+    private void require(int bytes) throws IOException {
+        if (buffer.remaining() < bytes && !fill(bytes)) {
+            throw new EOFException("Game record file ends in the middle of a record");
+        }
+    }
+
+    /**
+     * Reads from the file until the buffer holds at least the number of bytes.
+     * @return false if the file ends first
+     */
+    private boolean fill(int bytes) throws IOException {
+        if (bytes > BUFFER_SIZE) {
+            throw new IOException("Record is larger than the buffer");
+        }
+        buffer.compact();
+        try {
+            while (buffer.position() < bytes) {
+                if (channel.read(buffer) < 0) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            buffer.flip();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.out.println("Usage: java GameRecordReader <file>");
+            return;
+        }
+        long games = 0;
+        try (GameRecordReader reader = new GameRecordReader(Paths.get(args[0]))) {
+            for (GameRecord game = reader.read(); game != null; game = reader.read()) {
+                System.out.println(game);
+                games++;
+            }
+        }
+        System.out.println(games + " games");
+    }
+}
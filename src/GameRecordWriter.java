@@ -0,0 +1,222 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Appends finished games to a game record file (see {@link GameRecord} for the layout).
+ * Records are collected in a buffer and written with one channel write when it is full,
+ * so recording costs a few dozen nanoseconds per game. Games are only safe on disk after
+ * {@link #flush()} or {@link #close()}.
+ * <br>
+ * A player is written once, the first time it plays, and games refer to it by id.
+ * Players are told apart by class and name only, so the writer keeps no reference to
+ * them. Code that writes many games of the same players can get their ids once with
+ * {@link #playerId(Player)} and write the games with
+ * {@link #write(int, int, char, char, int[], int)}, as the {@link GameEngine} does.
+ * Any number of engines on different threads can share one writer.
+ *
+ * @version 2026-10-18 (Oct 18, 2026)
+ */
+public class GameRecordWriter implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    /** Ids of the players written so far, by class name and name */
+    private final Map<String, Integer> players = new HashMap<>();
+    private long games;
+
+    /**
+     * Opens a file for appending, creating it if it does not exist.
+     *
+     * @param file The game record file.
+     */
+    public GameRecordWriter(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.READ);
+        try {
+            if (channel.size() == 0) {
+                buffer.putInt(GameRecord.MAGIC);
+                buffer.putInt(GameRecord.VERSION);
+            } else {
+                GameRecordReader.checkHeader(channel);
+            }
+            channel.position(channel.size());
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        } catch (RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Appends a game.
+     *
+     * @param black The black player.
+     * @param red The red player.
+     * @param firstPlayer Color of the player that moved first.
+     * @param winner Color of the winner or EMPTY_SPACE for a tie.
+     * @param moves Columns played, in order.
+     * @param moveCount Number of moves played.
+     */
+    public synchronized void write(Player black, Player red, char firstPlayer, char winner, int[] moves,
+                                   int moveCount) throws IOException {
+        checkMoves(moves, moveCount);
+        append(playerId(black), playerId(red), firstPlayer, winner, moves, moveCount);
+    }
+
+    /**
+     * Appends a game of players whose ids were returned by {@link #playerId(Player)}.
+     *
+     * @param blackId Id of the black player.
+     * @param redId Id of the red player.
+     * @param firstPlayer Color of the player that moved first.
+     * @param winner Color of the winner or EMPTY_SPACE for a tie.
+     * @param moves Columns played, in order.
+     * @param moveCount Number of moves played.
+     */
+    public synchronized void write(int blackId, int redId, char firstPlayer, char winner, int[] moves,
+                                   int moveCount) throws IOException {
+        if (blackId < 0 || blackId >= players.size() || redId < 0 || redId >= players.size()) {
+            throw new IllegalArgumentException("Unknown player id");
+        }
+        checkMoves(moves, moveCount);
+        append(blackId, redId, firstPlayer, winner, moves, moveCount);
+    }
+
+    /**
+     * Appends a game.
+     *
+     * @param game The game.
+     */
+    public synchronized void write(GameRecord game) throws IOException {
+        int[] moves = new int[game.getMoveCount()];
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = game.getMove(i);
+        }
+        int blackId = playerId(game.getPlayer(Common.BLACK_PIECE), game.getPlayerClass(Common.BLACK_PIECE));
+        int redId = playerId(game.getPlayer(Common.RED_PIECE), game.getPlayerClass(Common.RED_PIECE));
+        append(blackId, redId, game.getFirstPlayer(), game.getWinner(), moves, moves.length);
+    }
+
+    private static void checkMoves(int[] moves, int moveCount) {
+        if (moveCount < 0 || moveCount > 42) {
+            throw new IllegalArgumentException("A game has 0 to 42 moves, not " + moveCount);
+        }
+        for (int i = 0; i < moveCount; i++) {
+            if (moves[i] < 0 || moves[i] > 6) {
+                throw new IllegalArgumentException("Move " + i + " is not a column: " + moves[i]);
+            }
+        }
+    }
+
+    private void append(int blackId, int redId, char firstPlayer, char winner, int[] moves, int moveCount)
+            throws IOException {
+        ensureSpace(GameRecord.GAME_SIZE + (3 * moveCount + 7) / 8);
+        int result = winner == Common.BLACK_PIECE ? 1 : winner == Common.RED_PIECE ? 2 : 0;
+        buffer.put(GameRecord.GAME);
+        buffer.put((byte) ((firstPlayer == Common.RED_PIECE ? 1 : 0) | result << 1));
+        buffer.put((byte) moveCount);
+        buffer.putShort((short) blackId);
+        buffer.putShort((short) redId);
+        // Pack the columns 3 bits each
+        int bits = 0;
+        int bitCount = 0;
+        for (int i = 0; i < moveCount; i++) {
+            bits |= moves[i] << bitCount;
+            bitCount += 3;
+            if (bitCount >= 8) {
+                buffer.put((byte) bits);
+                bits >>>= 8;
+                bitCount -= 8;
+            }
+        }
+        if (bitCount > 0) {
+            buffer.put((byte) bits);
+        }
+        games++;
+    }
+
+    /**
+     * @return The id of a player in this file, writing a player record the first time it is seen.
+     */
+    public synchronized int playerId(Player player) throws IOException {
+        return playerId(player.getName(), player.getClass().getName());
+    }
+
+    /**
+     * @return The id of a player, writing a player record the first time it is seen.
+     */
+    private int playerId(String name, String className) throws IOException {
+        String key = className + '\0' + name;
+        Integer id = players.get(key);
+        if (id != null) {
+            return id;
+        }
+        if (players.size() > 0xFFFF) {
+            throw new IllegalStateException("Too many players");
+        }
+        byte[] classBytes = className.getBytes(StandardCharsets.UTF_8);
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        if (classBytes.length + nameBytes.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Player name is too long");
+        }
+        id = players.size();
+        ensureSpace(7 + classBytes.length + nameBytes.length);
+        buffer.put(GameRecord.PLAYER);
+        buffer.putShort((short) (int) id);
+        buffer.putShort((short) classBytes.length);
+        buffer.put(classBytes);
+        buffer.putShort((short) nameBytes.length);
+        buffer.put(nameBytes);
+        players.put(key, id);
+        return id;
+    }
+
+    private void ensureSpace(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flushBuffer();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Writes the buffered games to the file.
+     */
+    public synchronized void flush() throws IOException {
+        flushBuffer();
+    }
+
+    /**
+     * @return The number of games written since the file was opened.
+     */
+    public synchronized long getGameCount() {
+        return games;
+    }
+
+    /**
+     * Writes the buffered games and closes the file.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            flushBuffer();
+        } finally {
+            channel.close();
+        }
+    }
+}
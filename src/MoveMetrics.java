@@ -0,0 +1,228 @@
+import java.lang.management.ManagementFactory;
+
+/**
+ * Cost of the moves of one player, measured by the {@link GameEngine} around every call
+ * to {@link Player#play}: the wall time, the CPU time of the calling thread and the
+ * bytes it allocated. The thread numbers come from the same ThreadMXBean counters the
+ * JMH profilers use, and are 0 on a JVM that does not support them. Reading the CPU
+ * time takes a few hundred nanoseconds, which is a lot next to a player that moves in
+ * a microsecond, so {@code -Dconnect4.metrics=false} turns the thread numbers off and
+ * only the wall time is measured.
+ * <br>
+ * Every measurement is kept in a {@link Histogram} with logarithmic buckets, so the
+ * memory used is the same after ten moves or ten million, and histograms of several
+ * engines can be merged.
+ *
+ * @version 2026-10-18 (Oct 18, 2026)
+ */
+public class MoveMetrics {
+    /** Thread counters of the JVM, null if it does not offer the extended ones */
+    private static final com.sun.management.ThreadMXBean THREADS = threadCounters();
+    /** Whether the thread CPU time and allocation are measured */
+    private static final boolean THREAD_METRICS = Boolean.parseBoolean(System.getProperty("connect4.metrics", "true"));
+    private static final boolean CPU_TIME = THREAD_METRICS && THREADS != null
+            && THREADS.isCurrentThreadCpuTimeSupported()
+            && THREADS.isThreadCpuTimeEnabled();
+    private static final boolean ALLOCATION = THREAD_METRICS && THREADS != null
+            && THREADS.isThreadAllocatedMemorySupported()
+            && THREADS.isThreadAllocatedMemoryEnabled();
+
+    /** Column headers of {@link #report(String)} */
+    public static final String HEADER = String.format("%-16s %-9s %10s %10s %10s %10s %10s %10s", "Player", "Metric",
+            "Moves", "Mean", "p50", "p95", "p99", "Max");
+
+    private static com.sun.management.ThreadMXBean threadCounters() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return (com.sun.management.ThreadMXBean) threads;
+        }
+        return null;
+    }
+
+    /** Wall time of every move in nanoseconds */
+    private final Histogram wall = new Histogram();
+    /** CPU time of every move in nanoseconds */
+    private final Histogram cpu = new Histogram();
+    /** Bytes allocated by every move */
+    private final Histogram allocated = new Histogram();
+
+    /**
+     * Measurement of one move, taken on the thread that calls the player
+     */
+    public static final class Sample {
+        private long wall;
+        private long cpu;
+        private long allocated;
+
+        /**
+         * Start measuring, right before the player is called
+         */
+        public void start() {
+            allocated = ALLOCATION ? THREADS.getCurrentThreadAllocatedBytes() : 0;
+            cpu = CPU_TIME ? THREADS.getCurrentThreadCpuTime() : 0;
+            wall = System.nanoTime();
+        }
+
+        /**
+         * Stop measuring, right after the player returns, on the same thread as {@link #start()}
+         */
+        public void stop() {
+            wall = System.nanoTime() - wall;
+            cpu = CPU_TIME ? THREADS.getCurrentThreadCpuTime() - cpu : 0;
+            allocated = ALLOCATION ? THREADS.getCurrentThreadAllocatedBytes() - allocated : 0;
+        }
+    }
+
+    /**
+     * Add the measurement of a move
+     * @param sample A stopped sample
+     */
+    public void record(Sample sample) {
+        wall.record(sample.wall);
+        cpu.record(sample.cpu);
+        allocated.record(sample.allocated);
+    }
+
+    /**
+     * Add all moves measured by other metrics
+     * @param other Metrics to add
+     */
+    public void merge(MoveMetrics other) {
+        wall.merge(other.wall);
+        cpu.merge(other.cpu);
+        allocated.merge(other.allocated);
+    }
+
+    /**
+     * @return Wall time of the moves in nanoseconds
+     */
+    public Histogram getWallTime() {
+        return wall;
+    }
+
+    /**
+     * @return CPU time of the moves in nanoseconds
+     */
+    public Histogram getCpuTime() {
+        return cpu;
+    }
+
+    /**
+     * @return Bytes allocated by the moves
+     */
+    public Histogram getAllocatedBytes() {
+        return allocated;
+    }
+
+    /**
+     * Report of the metrics, one line per measurement in the columns of {@link #HEADER}
+     * @param player Name of the player
+     * @return Report
+     */
+    public String report(String player) {
+        return line(player, "wall ms", wall, 1e6) + "\n"
+                + line("", "CPU ms", cpu, 1e6) + "\n"
+                + line("", "alloc KB", allocated, 1024);
+    }
+
+    private static String line(String player, String metric, Histogram h, double unit) {
+        return String.format("%-16s %-9s %10d %10.3f %10.3f %10.3f %10.3f %10.3f", player, metric, h.getCount(),
+                h.getMean() / unit, h.percentile(50) / unit, h.percentile(95) / unit, h.percentile(99) / unit,
+                h.getMax() / unit);
+    }
+
+    /**
+     * Histogram of non-negative values. Values below 16 have a bucket each, larger values
+     * share a bucket with the values that have the same highest 5 bits, so every
+     * percentile is within about 3% of the true value.
+     */
+    public static final class Histogram {
+        private static final int SUB_BITS = 4;
+        private static final int SUB_BUCKETS = 1 << SUB_BITS;
+        /** Enough buckets for every positive long */
+        private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+        private final long[] counts = new long[BUCKETS];
+        private long count;
+        private long sum;
+        private long max;
+
+        /**
+         * @param value Value to add, negative values are counted as 0
+         */
+        public void record(long value) {
+            value = Math.max(value, 0);
+            counts[bucket(value)]++;
+            count++;
+            sum += value;
+            max = Math.max(max, value);
+        }
+
+        /**
+         * Add all values of another histogram
+         */
+        public void merge(Histogram other) {
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] += other.counts[i];
+            }
+            count += other.count;
+            sum += other.sum;
+            max = Math.max(max, other.max);
+        }
+
+        private static int bucket(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+            return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+        }
+
+        /**
+         * @return The middle of the values that fall in a bucket
+         */
+        private static long middle(int bucket) {
+            if (bucket < SUB_BUCKETS) {
+                return bucket;
+            }
+            int shift = bucket / SUB_BUCKETS - 1;
+            long low = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+            return low + (1L << shift) / 2;
+        }
+
+        /**
+         * @param percent Percentage of values, 0 to 100
+         * @return The value that percentage of the values are less than or equal to, 0 without values
+         */
+        public long percentile(double percent) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percent / 100 * count));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(middle(i), max);
+                }
+            }
+            return max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        /**
+         * @return Mean of the values, 0 without values
+         */
+        public double getMean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+    }
+}
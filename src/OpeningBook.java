@@ -0,0 +1,250 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Scores of every position up to a certain number of moves, solved ahead of time with
+ * {@link Solver#solve(BitBoard, int)}. The {@link Solver} loads {@link #DEFAULT_FILE}
+ * when it exists, so early moves are perfect without solving the opening during a game.
+ * <br>
+ * The book is memory-mapped read-only and never changes, so any number of threads can
+ * look up positions at the same time without locking. Positions are stored by
+ * {@link BitBoard#canonicalKey()}, so a position and its mirror image share one entry.
+ * <br>
+ * File layout (big-endian): magic, version, depth and the number of positions as ints,
+ * then the keys as longs in ascending order, then the score of every key as a byte.
+ * <br>
+ * To generate a book:
+ * <pre>java OpeningBook [-depth n] [-threads n] [file]</pre>
+ *
+ * @version 2026-10-18 (Oct 18, 2026)
+ */
+public class OpeningBook {
+    /** Score returned for a position that is not in the book */
+    public static final int MISSING = Integer.MIN_VALUE;
+    /** File the solver loads the book from, in the working directory */
+    public static final String DEFAULT_FILE = "opening.book";
+    /** Number of moves covered when none is given to the generator */
+    private static final int DEFAULT_DEPTH = 8;
+
+    private static final int MAGIC = 0x43344F42; // "C4OB"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+
+    /** Contents of the book file */
+    private final ByteBuffer buffer;
+    /** Highest number of moves of the positions in the book */
+    private final int depth;
+    /** Number of positions in the book */
+    private final int size;
+
+    private OpeningBook(ByteBuffer buffer) {
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not an opening book");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Unsupported opening book version " + buffer.getInt(4));
+        }
+        this.buffer = buffer;
+        this.depth = buffer.getInt(8);
+        this.size = buffer.getInt(12);
+        if (buffer.capacity() != HEADER_SIZE + 9L * size) {
+            throw new IllegalArgumentException("Opening book is truncated");
+        }
+    }
+
+    /**
+     * Memory-maps a book file read-only.
+     *
+     * @param file The book file.
+     * @return The book.
+     */
+    public static OpeningBook open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            return new OpeningBook(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * A book that can not be read is reported on stderr and ignored, so the solver
+     * still works without it.
+     *
+     * @return The book in {@link #DEFAULT_FILE}, or null if there is no such file or it
+     *         can not be read.
+     */
+    static OpeningBook openDefault() {
+        Path file = Paths.get(DEFAULT_FILE);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try {
+            return open(file);
+        } catch (IOException e) {
+            System.err.println("Opening book " + file + " not used: " + e);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Opening book " + file + " not used: " + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * @param bb The position.
+     * @return The score of the position for the player whose turn it is, or
+     *         {@link #MISSING} if the position is not in the book.
+     */
+    public int get(BitBoard bb) {
+        if (bb.getTurnCount() > depth) {
+            return MISSING;
+        }
+        long key = bb.canonicalKey();
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midKey = buffer.getLong(HEADER_SIZE + 8 * mid);
+            if (midKey < key) {
+                low = mid + 1;
+            } else if (midKey > key) {
+                high = mid - 1;
+            } else {
+                return buffer.get(HEADER_SIZE + 8 * size + mid);
+            }
+        }
+        return MISSING;
+    }
+
+    /**
+     * @return The highest number of moves of the positions in the book.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return The number of positions in the book.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Solves every position with at most depth moves, except the positions in which
+     * the game is already over, and writes them to a book file.
+     *
+     * @param file    The file to write.
+     * @param depth   The highest number of moves of the positions in the book.
+     * @param threads The number of positions solved at the same time.
+     */
+    public static void generate(Path file, int depth, int threads) throws IOException, InterruptedException {
+        Map<Long, BitBoard> positions = new HashMap<>();
+        addPositions(new BitBoard(), depth, positions);
+
+        // Solve the positions with the most moves first, their results help solve the others
+        List<BitBoard> boards = new ArrayList<>(positions.values());
+        boards.sort((x, y) -> Integer.compare(y.getTurnCount(), x.getTurnCount()));
+        System.out.println(boards.size() + " positions with up to " + depth + " moves");
+
+        Map<Long, Integer> scores = new HashMap<>();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (BitBoard bb : boards) {
+                futures.add(pool.submit(() -> Solver.solve(bb, 0)));
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < futures.size(); i++) {
+                scores.put(boards.get(i).canonicalKey(), futures.get(i).get());
+                if ((i + 1) % 1000 == 0 || i + 1 == futures.size()) {
+                    System.out.printf("%d / %d solved (%.1f s)%n", i + 1, futures.size(), (System.nanoTime() - start) / 1e9);
+                }
+            }
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        write(file, depth, scores);
+    }
+
+    /**
+     * Adds a position and every position that follows from it, up to depth moves.
+     */
+    private static void addPositions(BitBoard bb, int depth, Map<Long, BitBoard> positions) {
+        if (positions.putIfAbsent(bb.canonicalKey(), new BitBoard(bb)) != null) {
+            return; // Reached before by other moves
+        }
+        if (bb.getTurnCount() == depth) {
+            return;
+        }
+        for (int col = 0; col < 7; col++) {
+            if (bb.canPlay(col)) {
+                bb.makeMove(col);
+                if (bb.lastMoveWinningLine() == 0 && !bb.isDraw()) {
+                    addPositions(bb, depth, positions);
+                }
+                bb.undoMove();
+            }
+        }
+    }
+
+    /**
+     * Writes a book file.
+     *
+     * @param file   The file to write.
+     * @param depth  The highest number of moves of the positions.
+     * @param scores The score of every position by {@link BitBoard#canonicalKey()}.
+     */
+    static void write(Path file, int depth, Map<Long, Integer> scores) throws IOException {
+        long[] keys = new long[scores.size()];
+        int n = 0;
+        for (long key : scores.keySet()) {
+            keys[n++] = key;
+        }
+        Arrays.sort(keys);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(depth);
+            out.writeInt(keys.length);
+            for (long key : keys) {
+                out.writeLong(key);
+            }
+            for (long key : keys) {
+                out.writeByte(scores.get(key));
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int depth = DEFAULT_DEPTH;
+        int threads = Runtime.getRuntime().availableProcessors();
+        Path file = Paths.get(DEFAULT_FILE);
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-depth")) {
+                depth = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-threads")) {
+                threads = Integer.parseInt(args[++i]);
+            } else {
+                file = Paths.get(args[i]);
+            }
+        }
+        generate(file, depth, threads);
+        System.out.println("Wrote " + file);
+    }
+}
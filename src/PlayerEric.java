@@ -1,18 +1,52 @@
-import java.util.ArrayList;
 import java.util.Arrays;
 
 /**
+ * Looks five moves ahead and scores every column by how often each player wins in the
+ * positions that follow, with the wins closest to the current position counting the most.
+ * <br>
+ * The positions are kept as two bitboards (in the layout of {@link BitBoard}), and the
+ * score below a position only depends on the position and the number of moves made, so
+ * it is remembered in a small cache and reused by every later search. The scores are
+ * exactly those of the original version, which copied a {@code char[][]} for every
+ * position and scanned it with {@link Common#checkForWinner(char[][])}:
+ * a piece dropped in a full column leaves the board as it is, and when both players
+ * have four in a row the winner is the one checkForWinner finds first (see
+ * {@link Common#checkForWinner(long, char, long, char)}).
+ *
  * @author Eric Heinke
- * @version 2.0 2023-10-22 (Oct 22, 2023)
+ * @version 2.1 2026-10-18 (Oct 18, 2026)
  */
-public class PlayerEric extends Player {
+public class PlayerEric extends Player implements BoardViewPlayer {
+    /** Number of moves looked ahead */
+    private static final int DEPTH = 5;
+    /** Score of a win after each number of moves, mine after an odd number, the opponent's after an even one */
+    private static final int[] LEVEL_SCORES = { 0, 10_000_000, -10_000, 100, -10, 1 };
+    /** Score of a column in which the opponent would win with its next move */
+    private static final int BLOCK_SCORE = 1_000_000;
+    /** Number of positions remembered, a power of two */
+    private static final int CACHE_SIZE = 1 << 13;
+
+    /** Bottom space of every column */
+    private static final long BOTTOM_ROW = 0b0000001_0000001_0000001_0000001_0000001_0000001_0000001L;
+    /** Every space of the board */
+    private static final long BOARD = BOTTOM_ROW * 0b111111;
+    /** Top space of every column */
+    private static final long TOP_ROW = 0b0100000_0100000_0100000_0100000_0100000_0100000_0100000L;
+
     int[] moves = new int[7];
     boolean newGame;
     boolean firstMove;
 
+    /** Key (position and number of moves made) and score of the remembered positions */
+    private final long[] cacheKeys = new long[CACHE_SIZE];
+    private final int[] cacheScores = new int[CACHE_SIZE];
+    /** Columns sharing the best score */
+    private final int[] bestMoves = new int[7];
+
     public PlayerEric(char myColor, char opponentColor, char emptySpace) {
         super(myColor, opponentColor, emptySpace);
         this.name = "Eric Heinke";
+        Arrays.fill(cacheKeys, -1);
     }
 
     @Override
@@ -23,67 +57,104 @@ public class PlayerEric extends Player {
 
     @Override
     public int play(char[][] board) {
-        calculateMoveScores(board);
+        long mine = 0;
+        long theirs = 0;
+        for (int row = 0; row < board.length; row++) {
+            for (int col = 0; col < board[row].length; col++) {
+                long bit = 1L << (7 * col + board.length - 1 - row);
+                if (board[row][col] == myColor) {
+                    mine |= bit;
+                } else if (board[row][col] == opponentColor) {
+                    theirs |= bit;
+                }
+            }
+        }
+        return chooseMove(mine, theirs);
+    }
+
+    @Override
+    public int play(BoardView view) {
+        return chooseMove(view.getBoard(myColor), view.getBoard(opponentColor));
+    }
+
+    private int chooseMove(long mine, long theirs) {
+        calculateMoveScores(mine, theirs);
         int bestMove = (int)(Math.random()*7);
         for (int col = 0; col < moves.length; col++) {
-            if (moves[col] > moves[bestMove] && board[0][col] == emptySpace) {
+            if (moves[col] > moves[bestMove] && ((mine | theirs) & TOP_ROW & BitBoard.columnMask(col)) == 0) {
                 bestMove = col;
             }
         }
-        ArrayList<Integer> bestMoves = new ArrayList<>(7);
+        int count = 0;
         for (int col = 0; col < moves.length; col++) {
             if (moves[bestMove] == moves[col]) {
-                bestMoves.add(col);
+                bestMoves[count++] = col;
             }
         }
-        bestMove = bestMoves.get((int) (Math.random()*bestMoves.size()));
-//        System.out.println(bestMoves);
-//        System.out.println(Arrays.toString(moves));
-        return bestMove;
+        return bestMoves[(int) (Math.random()*count)];
     }
 
-    private void calculateMoveScores(char[][] originalBoard) {
-        Arrays.fill(moves, 0);
-
+    private void calculateMoveScores(long mine, long theirs) {
+        long mask = mine | theirs;
         for (int col = 0; col < moves.length; col++) {
-            char[][] board1 = duplicateBoard(originalBoard);
-            dropPiece(board1, col, myColor);
-            if (checkForWinner(board1) == myColor) {
-                moves[col] += 10_000_000;
+            long move = drop(mask, col);
+            moves[col] = 0;
+            if (Common.checkForWinner(mine | move, myColor, theirs, opponentColor) == myColor) {
+                moves[col] += LEVEL_SCORES[1];
             }
-            char[][] board1b = duplicateBoard(originalBoard);
-            dropPiece(board1b, col, opponentColor);
-            if (checkForWinner(board1b) == opponentColor) {
-                moves[col] += 1_000_000;
+            if (Common.checkForWinner(mine, myColor, theirs | move, opponentColor) == opponentColor) {
+                moves[col] += BLOCK_SCORE;
             }
-            for (int a = 0; a < moves.length; a++) {
-                char[][] board2 = duplicateBoard(board1);
-                dropPiece(board2, a, opponentColor);
-                if (checkForWinner(board2) == opponentColor) {
-                    moves[col] -= 10_000;
-                }
-                for (int b = 0; b < moves.length; b++) {
-                    char[][] board3 = duplicateBoard(board2);
-                    dropPiece(board3, b, myColor);
-                    if (checkForWinner(board3) == myColor) {
-                        moves[col] += 100;
-                    }
-                    for (int c = 0; c < moves.length; c++) {
-                        char[][] board4 = duplicateBoard(board3);
-                        dropPiece(board4, c, opponentColor);
-                        if (checkForWinner(board4) == opponentColor) {
-                            moves[col] -= 10;
-                        }
-                        for (int d = 0; d < moves.length; d++) {
-                            char[][] board5 = duplicateBoard(board4);
-                            dropPiece(board5, d, myColor);
-                            if (checkForWinner(board5) == myColor) {
-                                moves[col] += 1;
-                            }
-                        }
-                    }
-                }
+            moves[col] += scoreBelow(mine | move, theirs, 1);
+        }
+    }
+
+    /**
+     * Score of the wins in the positions that follow a position
+     * @param mine My pieces
+     * @param theirs Opponent's pieces
+     * @param level Number of moves made to reach the position
+     * @return Sum of the scores of the wins, for every order of moves up to DEPTH
+     */
+    private int scoreBelow(long mine, long theirs, int level) {
+        int next = level + 1;
+        boolean myMove = (next & 1) == 1;
+        long mask = mine | theirs;
+        if (next == DEPTH && !BitBoard.isWin(mine) && !BitBoard.isWin(theirs)) {
+            // Without four in a row on the board, the last move wins wherever it completes one
+            long playable = (mask + BOTTOM_ROW) & BOARD;
+            return Long.bitCount(BitBoard.winningPositions(myMove ? mine : theirs, mask) & playable) * LEVEL_SCORES[next];
+        }
+
+        long key = (mask + mine) << 3 | level;
+        int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 51);
+        if (cacheKeys[slot] == key) {
+            return cacheScores[slot];
+        }
+
+        char mover = myMove ? myColor : opponentColor;
+        int score = 0;
+        for (int col = 0; col < 7; col++) {
+            long move = drop(mask, col);
+            long nextMine = myMove ? mine | move : mine;
+            long nextTheirs = myMove ? theirs : theirs | move;
+            if (Common.checkForWinner(nextMine, myColor, nextTheirs, opponentColor) == mover) {
+                score += LEVEL_SCORES[next];
+            }
+            if (next < DEPTH) {
+                score += scoreBelow(nextMine, nextTheirs, next);
             }
         }
+
+        cacheKeys[slot] = key;
+        cacheScores[slot] = score;
+        return score;
+    }
+
+    /**
+     * @return The space a piece dropped in the column lands on, 0 if the column is full
+     */
+    private static long drop(long mask, int col) {
+        return (mask + (1L << (7 * col))) & BitBoard.columnMask(col);
     }
 }
@@ -0,0 +1,380 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Monte Carlo tree search (UCT). The moves are explored by playing random games on a
+ * {@link BitBoard} until the time for the move runs out, and the column that was
+ * explored the most is played.
+ * <br>
+ * The nodes of a tree are kept in preallocated arrays and the random games only make
+ * and undo moves, so searching allocates nothing. After the opponent's reply, the part
+ * of the tree below the position that was reached is kept for the next move.
+ * <br>
+ * Several trees can be searched at the same time (root parallelism), one per thread,
+ * and their visit counts are added up to choose the move. The time per move and the
+ * number of threads are set with {@code -Dconnect4.mcts.millis} (default 50) and
+ * {@code -Dconnect4.mcts.threads} (default 1, since tournaments already play one game
+ * per processor).
+ *
+ * @version 2026-10-18 (Oct 18, 2026)
+ */
+public class PlayerMCTS extends Player implements BoardViewPlayer {
+    /** Time spent searching for a move */
+    private static final long MOVE_MILLIS = Long.getLong("connect4.mcts.millis", 50);
+    /** Number of trees searched at the same time */
+    private static final int THREADS = Integer.getInteger("connect4.mcts.threads", 1);
+    /** Number of nodes of every tree */
+    private static final int TREE_SIZE = 1 << 18;
+    /** Weight of exploring moves that were visited less often (UCT constant) */
+    private static final double EXPLORATION = 1.0;
+
+    /** Result of the move leading to a node */
+    private static final byte UNKNOWN = 0;
+    private static final byte WIN = 1;
+    private static final byte DRAW = 2;
+
+    /** Threads that search the other trees */
+    private static final ExecutorService HELPERS = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "MCTS helper");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final long budgetNanos;
+    private final Tree[] trees;
+
+    public PlayerMCTS(char myColor, char opponentColor, char emptySpace) {
+        this(myColor, opponentColor, emptySpace, MOVE_MILLIS, THREADS);
+    }
+
+    /**
+     * @param moveMillis Time spent searching for a move in milliseconds
+     * @param threads Number of trees searched at the same time
+     */
+    public PlayerMCTS(char myColor, char opponentColor, char emptySpace, long moveMillis, int threads) {
+        super(myColor, opponentColor, emptySpace);
+        if (moveMillis <= 0 || threads <= 0) {
+            throw new IllegalArgumentException("Time per move and number of threads must be positive");
+        }
+        this.name = "MCTS";
+        this.budgetNanos = moveMillis * 1_000_000L;
+        this.trees = new Tree[threads];
+        for (int i = 0; i < threads; i++) {
+            trees[i] = new Tree(System.nanoTime() ^ (i + 1) * 0x9E3779B97F4A7C15L);
+        }
+    }
+
+    @Override
+    public void newGame(boolean firstMove) {
+        for (Tree tree : trees) {
+            tree.board = null;
+        }
+    }
+
+    @Override
+    public int play(char[][] board) {
+        return play(new BitBoard(board, myColor, emptySpace));
+    }
+
+    @Override
+    public int play(BoardView view) {
+        return play(view.toBitBoard());
+    }
+
+    private int play(BitBoard bb) {
+        long deadline = System.nanoTime() + budgetNanos;
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 1; i < trees.length; i++) {
+            Tree tree = trees[i];
+            futures.add(HELPERS.submit(() -> tree.search(bb, deadline)));
+        }
+        trees[0].search(bb, deadline);
+        // Every helper is waited for, even when interrupted, so no tree is still searched by the next move
+        boolean interrupted = false;
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                futures.get(i).get();
+            } catch (InterruptedException e) {
+                interrupted = true;
+                i--;
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        // A winning move found by any tree is played, otherwise the most visited column
+        long[] visits = new long[7];
+        for (Tree tree : trees) {
+            int first = tree.children[tree.root];
+            for (int child = first; child < first + tree.childCount[tree.root]; child++) {
+                if (tree.result[child] == WIN) {
+                    return tree.column[child];
+                }
+                visits[tree.column[child]] += tree.visits[child];
+            }
+        }
+        int best = -1;
+        for (int col = 0; col < 7; col++) {
+            if (bb.canPlay(col) && (best < 0 || visits[col] > visits[best])) {
+                best = col;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * A search tree and the board it is searched on. A node is an index into the arrays,
+     * and the children of a node are next to each other.
+     */
+    private static final class Tree {
+        /** First child of every node, -1 until the node is expanded */
+        final int[] children = new int[TREE_SIZE];
+        final byte[] childCount = new byte[TREE_SIZE];
+        /** Column of the move leading to every node */
+        final byte[] column = new byte[TREE_SIZE];
+        final byte[] result = new byte[TREE_SIZE];
+        final int[] visits = new int[TREE_SIZE];
+        /** Games won by the player who made the move leading to the node, a draw counts half, times two */
+        final int[] score = new int[TREE_SIZE];
+        /** New index of every node kept when the tree is moved to a new root, -1 for the others */
+        final int[] forward = new int[TREE_SIZE];
+        /** Nodes from the root to the node being searched, also used as a stack */
+        final int[] path = new int[TREE_SIZE];
+        int used;
+        int root;
+        /** The position of the root, null before the first search of a game */
+        BitBoard board;
+        /** State of the xorshift random number generator */
+        long random;
+
+        Tree(long seed) {
+            random = seed == 0 ? 1 : seed;
+        }
+
+        /**
+         * Searches a position until the deadline, keeping the tree of an earlier search
+         * if the position follows from its root.
+         */
+        void search(BitBoard bb, long deadline) {
+            int kept = board == null ? -1 : find(bb);
+            board = new BitBoard(bb);
+            if (kept < 0) {
+                used = 1;
+                root = 0;
+                children[0] = -1;
+                visits[0] = 0;
+                score[0] = 0;
+                result[0] = UNKNOWN;
+            } else {
+                moveRoot(kept);
+            }
+            if (children[root] < 0) {
+                expand(root);
+            }
+            do {
+                iterate();
+            } while (System.nanoTime() < deadline);
+        }
+
+        /**
+         * @return The node two moves below the root whose position is the position, -1 if none
+         */
+        private int find(BitBoard bb) {
+            if (bb.getTurnCount() != board.getTurnCount() + 2) {
+                return -1;
+            }
+            int first = children[root];
+            for (int child = first; first >= 0 && child < first + childCount[root]; child++) {
+                int grandFirst = children[child];
+                if (grandFirst < 0) {
+                    continue;
+                }
+                board.makeMove(column[child]);
+                for (int grandChild = grandFirst; grandChild < grandFirst + childCount[child]; grandChild++) {
+                    board.makeMove(column[grandChild]);
+                    boolean same = board.getPlayer0Board() == bb.getPlayer0Board()
+                            && board.getPlayer1Board() == bb.getPlayer1Board();
+                    board.undoMove();
+                    if (same) {
+                        board.undoMove();
+                        return grandChild;
+                    }
+                }
+                board.undoMove();
+            }
+            return -1;
+        }
+
+        /**
+         * Makes a node the root and slides the nodes below it to the front of the arrays,
+         * so the space of the other nodes can be used again. Children always come after
+         * their parent, so every node moves to a lower index and stays next to its siblings.
+         */
+        private void moveRoot(int node) {
+            for (int i = 0; i < used; i++) {
+                forward[i] = -1;
+            }
+            int top = 0;
+            path[top++] = node;
+            while (top > 0) {
+                int n = path[--top];
+                forward[n] = 0;
+                for (int child = children[n]; child >= 0 && child < children[n] + childCount[n]; child++) {
+                    path[top++] = child;
+                }
+            }
+            int next = 0;
+            for (int i = 0; i < used; i++) {
+                if (forward[i] >= 0) {
+                    forward[i] = next++;
+                }
+            }
+            for (int i = 0; i < used; i++) {
+                int to = forward[i];
+                if (to >= 0) {
+                    children[to] = children[i] < 0 ? -1 : forward[children[i]];
+                    childCount[to] = childCount[i];
+                    column[to] = column[i];
+                    result[to] = result[i];
+                    visits[to] = visits[i];
+                    score[to] = score[i];
+                }
+            }
+            used = next;
+            root = 0;
+        }
+
+        /**
+         * Selects a path down the tree, expands its last node, plays a random game from
+         * there and counts the result in every node of the path.
+         */
+        private void iterate() {
+            int node = root;
+            int depth = 0;
+            path[0] = node;
+            while (children[node] >= 0 && result[node] == UNKNOWN) {
+                node = select(node);
+                board.makeMove(column[node]);
+                path[++depth] = node;
+            }
+            if (result[node] == UNKNOWN && visits[node] > 0 && expand(node)) {
+                node = select(node);
+                board.makeMove(column[node]);
+                path[++depth] = node;
+            }
+
+            // Player 0 or 1 of the board that won, -1 for a draw
+            int winner;
+            if (result[node] == WIN) {
+                winner = (board.getTurnCount() - 1) & 1;
+            } else if (result[node] == DRAW) {
+                winner = -1;
+            } else {
+                winner = playout();
+            }
+
+            for (int i = depth; i >= 0; i--) {
+                int n = path[i];
+                visits[n]++;
+                if (winner < 0) {
+                    score[n]++;
+                } else if (winner == ((board.getTurnCount() - 1) & 1)) {
+                    score[n] += 2;
+                }
+                if (i > 0) {
+                    board.undoMove();
+                }
+            }
+        }
+
+        /**
+         * @return The child to search, always a winning move if there is one
+         */
+        private int select(int node) {
+            int first = children[node];
+            double logVisits = Math.log(visits[node]);
+            int best = first;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            for (int child = first; child < first + childCount[node]; child++) {
+                if (result[child] == WIN || visits[child] == 0) {
+                    return child;
+                }
+                double value = score[child] / (2.0 * visits[child])
+                        + EXPLORATION * Math.sqrt(logVisits / visits[child]);
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = child;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Adds a child for every move of the node's position, on the board.
+         * @return false if the tree is full
+         */
+        private boolean expand(int node) {
+            if (used + 7 > TREE_SIZE) {
+                return false;
+            }
+            int first = used;
+            for (int col = 0; col < 7; col++) {
+                if (board.canPlay(col)) {
+                    int child = used++;
+                    board.makeMove(col);
+                    children[child] = -1;
+                    childCount[child] = 0;
+                    column[child] = (byte) col;
+                    result[child] = BitBoard.isWin(lastMover()) ? WIN : board.isDraw() ? DRAW : UNKNOWN;
+                    visits[child] = 0;
+                    score[child] = 0;
+                    board.undoMove();
+                }
+            }
+            children[node] = first;
+            childCount[node] = (byte) (used - first);
+            return true;
+        }
+
+        /**
+         * Plays random moves until the game ends, then takes them back.
+         * @return Player 0 or 1 of the board that won, -1 for a draw
+         */
+        private int playout() {
+            int start = board.getTurnCount();
+            int winner = -1;
+            while (!board.isDraw()) {
+                int col;
+                do {
+                    random ^= random << 13;
+                    random ^= random >>> 7;
+                    random ^= random << 17;
+                    col = (int) (((random >>> 32) * 7) >>> 32);
+                } while (!board.canPlay(col));
+                board.makeMove(col);
+                if (BitBoard.isWin(lastMover())) {
+                    winner = (board.getTurnCount() - 1) & 1;
+                    break;
+                }
+            }
+            while (board.getTurnCount() > start) {
+                board.undoMove();
+            }
+            return winner;
+        }
+
+        /**
+         * @return The pieces of the player who made the last move
+         */
+        private long lastMover() {
+            return (board.getTurnCount() & 1) == 1 ? board.getPlayer0Board() : board.getPlayer1Board();
+        }
+    }
+}
@@ -1,35 +1,54 @@
-public class PlayerScott extends Player {
+public class PlayerScott extends Player implements BoardViewPlayer {
+    /** Time spent searching for a move */
+    private static final long MOVE_BUDGET_NANOS = 50_000_000L;
+    /** Number of moves searched ahead */
+    private static final int MAX_DEPTH = 42;
 
     public PlayerScott(char myColor, char opponentColor, char emptySpace) {
         super(myColor, opponentColor, emptySpace);
         this.name = "Scott";
     }
 
+    /**
+     * The solver keeps no state about the game, its transposition table only holds
+     * exact results that stay valid in every game.
+     */
     @Override
-    public void newGame(boolean firstMove) {
-        // TODO Auto-generated method stub
-        
-    }
+    public void newGame(boolean firstMove) { }
 
     @Override
     public int play(char[][] board) {
-        BitBoard bb = new BitBoard(board);
-        int[] scores = Solver.customSolve(bb);
+        return play(new BitBoard(board, myColor, emptySpace));
+    }
+
+    @Override
+    public int play(BoardView view) {
+        return play(view.toBitBoard());
+    }
+
+    private int play(BitBoard bb) {
+        if (Solver.STATS) {
+            Solver.resetStats();
+        }
+        int[] scores = Solver.customSolve(bb, MAX_DEPTH, MOVE_BUDGET_NANOS);
+        if (Solver.STATS) {
+            System.out.println(name + " move " + (bb.getTurnCount() + 1) + ": " + Solver.getStats());
+        }
         int bestPos = -17;
             for (int i = 0; i < scores.length; i++) {
-                System.out.print(scores[i] + " ");
                 if (bestPos == -17) {
-                    if (bb.listMoves()[i] != -1) {
+                    if (bb.canPlay(i)) {
                         bestPos = i;
                     }
                 } else {
-                    if (bb.listMoves()[i] != -1) {
+                    if (bb.canPlay(i)) {
                         if (scores[bestPos] <= scores[i]) {
                             bestPos = i;
                         }
                     }
                 }
             }
+        return bestPos;
     }
     
 }
\ No newline at end of file
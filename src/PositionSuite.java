@@ -0,0 +1,156 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Checks the {@link Solver} against files of positions with known scores, and reports
+ * how fast it is. Every line of a file holds the moves of a position and its score,
+ * separated by a space, in the format of the usual Connect 4 test sets: the columns
+ * are numbered 1 to 7 and the score is the one {@link Solver#solve(BitBoard, int)}
+ * returns. Empty lines and lines starting with # are skipped.
+ * <pre>
+ * 2252576253462244111563365343671351441 -1
+ * </pre>
+ * Every position is solved with an empty transposition table and without the opening
+ * book. The mean time, the mean number of nodes, the nodes per second and the table hit
+ * rate are reported for the early game (less than 14 moves), the middle game and the
+ * end game (28 moves or more).
+ * <br>
+ * The exit code is 1 if any score is wrong, so the suite can be used to check changes:
+ * <pre>java PositionSuite files...</pre>
+ *
+ * @version 2026-10-18 (Oct 18, 2026)
+ */
+public class PositionSuite {
+    /** Number of moves at which the middle game starts */
+    private static final int MIDDLE_GAME = 14;
+    /** Number of moves at which the end game starts */
+    private static final int END_GAME = 28;
+    private static final String[] PHASE_NAMES = { "early", "middle", "end" };
+
+    /**
+     * Totals of the positions of one game phase
+     */
+    private static class Phase {
+        int positions;
+        int wrong;
+        long nanos;
+        long nodes;
+        long probes;
+        long hits;
+
+        void print(String name) {
+            if (positions == 0) {
+                System.out.printf("%-8s %10d%n", name, 0);
+                return;
+            }
+            System.out.printf("%-8s %10d %10d %12.3f %14.0f %14.0f %9.1f%%%n", name, positions, wrong,
+                    nanos / 1e6 / positions, (double) nodes / positions, nodes * 1e9 / Math.max(nanos, 1),
+                    probes == 0 ? 0 : hits * 100.0 / probes);
+        }
+    }
+
+    private final Phase[] phases = { new Phase(), new Phase(), new Phase() };
+
+    /**
+     * Solve every position in a file
+     * @param file File of positions
+     */
+    public void run(Path file) throws IOException {
+        List<String> lines = Files.readAllLines(file);
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] parts = line.split("\\s+");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException(file + ":" + (i + 1) + ": expected moves and a score");
+            }
+            BitBoard bb = position(parts[0], file + ":" + (i + 1));
+            int expected = Integer.parseInt(parts[1]);
+
+            Solver.clearTable();
+            Solver.resetNodeCount();
+            long start = System.nanoTime();
+            int score = Solver.solve(bb, 0);
+            long nanos = System.nanoTime() - start;
+
+            Phase phase = phases[bb.getTurnCount() < MIDDLE_GAME ? 0 : bb.getTurnCount() < END_GAME ? 1 : 2];
+            phase.positions++;
+            phase.nanos += nanos;
+            phase.nodes += Solver.getNodeCount();
+            phase.probes += Solver.getTableProbes();
+            phase.hits += Solver.getTableHits();
+            if (score != expected) {
+                phase.wrong++;
+                System.out.println(file + ":" + (i + 1) + ": " + parts[0] + " expected " + expected + " but was " + score);
+            }
+        }
+    }
+
+    /**
+     * @param moves Columns played, 1 to 7
+     * @param where File and line, for error messages
+     * @return The position after the moves
+     */
+    private static BitBoard position(String moves, String where) {
+        BitBoard bb = new BitBoard();
+        for (int i = 0; i < moves.length(); i++) {
+            int column = moves.charAt(i) - '1';
+            if (column < 0 || column > 6 || !bb.canPlay(column) || bb.isWinningMove(column)) {
+                throw new IllegalArgumentException(where + ": move " + (i + 1) + " is not allowed");
+            }
+            bb.makeMove(column);
+        }
+        return bb;
+    }
+
+    /**
+     * @return Number of positions with a wrong score
+     */
+    public int getWrongTotal() {
+        int wrong = 0;
+        for (Phase phase : phases) {
+            wrong += phase.wrong;
+        }
+        return wrong;
+    }
+
+    /**
+     * Print the results of every game phase
+     */
+    public void report() {
+        System.out.printf("%-8s %10s %10s %12s %14s %14s %10s%n", "Phase", "Positions", "Wrong", "Mean ms",
+                "Mean nodes", "Nodes/s", "Hit rate");
+        Phase total = new Phase();
+        for (int i = 0; i < phases.length; i++) {
+            phases[i].print(PHASE_NAMES[i]);
+            total.positions += phases[i].positions;
+            total.wrong += phases[i].wrong;
+            total.nanos += phases[i].nanos;
+            total.nodes += phases[i].nodes;
+            total.probes += phases[i].probes;
+            total.hits += phases[i].hits;
+        }
+        total.print("total");
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Usage: java PositionSuite <position files...>");
+            System.exit(2);
+        }
+        Solver.setOpeningBook(null); // Measure the search, not the book
+        PositionSuite suite = new PositionSuite();
+        for (String file : args) {
+            suite.run(Paths.get(file));
+        }
+        suite.report();
+        if (suite.getWrongTotal() > 0) {
+            System.exit(1);
+        }
+    }
+}
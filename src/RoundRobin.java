@@ -0,0 +1,350 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Round robin tournament between player classes. Every player plays every other player,
+ * and the games are spread across all cores using the {@link GameEngine}.
+ * <br>
+ * Each pairing is split into batches of games. Every batch builds its own game engine,
+ * and with it its own player instances, on the worker thread that plays it, so players
+ * with internal state are never shared between threads. The side that moves first
+ * alternates from game to game over the whole pairing, the same way it does in
+ * {@link Connect4}. A batch only returns the results of its players, so the engine and
+ * the players are freed as soon as the batch is over.
+ * <br>
+ * To run from the command line (Greenfoot is not needed):
+ * <pre>java RoundRobin [-games n] [-threads n] [-move ms] [-game ms] [-increment ms] [-table file] [-record file] [player classes...]</pre>
+ * With -table, the {@link Solver} starts with the transposition table saved in the file
+ * (if it exists) and saves its table there at the end. With -record, every game is
+ * appended to the file with a {@link GameRecordWriter}.
+ *
+ * @version 2026-10-18 (Oct 18, 2026)
+ */
+public class RoundRobin {
+    /** Players used when none are given on the command line */
+    private static final String[] DEFAULT_PLAYERS = { "PlayerEric", "PlayerEricHS", "PlayerScott", "PlayerMCTS", "PlayerRandom" };
+    /** Number of games played by one task, even so that every batch starts with the same side */
+    private static final int BATCH_SIZE = 50;
+
+    private final List<Class<?>> playerClasses;
+    private final int gamesPerPairing;
+    private final int threads;
+    private final TimeControl timeControl;
+    /** Where every game is written, null to not record games */
+    private GameRecordWriter recorder;
+
+    /**
+     * @param playerClasses Player classes taking part in the tournament
+     * @param gamesPerPairing Number of games played between every two players
+     * @param threads Number of worker threads
+     */
+    public RoundRobin(List<Class<?>> playerClasses, int gamesPerPairing, int threads) {
+        this(playerClasses, gamesPerPairing, threads, null);
+    }
+
+    /**
+     * @param playerClasses Player classes taking part in the tournament
+     * @param gamesPerPairing Number of games played between every two players
+     * @param threads Number of worker threads
+     * @param timeControl Time control for every game, or null for no time limits
+     */
+    public RoundRobin(List<Class<?>> playerClasses, int gamesPerPairing, int threads, TimeControl timeControl) {
+        this.playerClasses = playerClasses;
+        this.gamesPerPairing = gamesPerPairing;
+        this.threads = threads;
+        this.timeControl = timeControl;
+    }
+
+    /**
+     * Record every game of the tournament
+     * @param recorder Where to write the games, or null to not record them
+     */
+    public void setRecorder(GameRecordWriter recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * Play the tournament
+     * @return Standings of every player, best player first
+     */
+    public List<Standing> run() throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Batch> batches = new ArrayList<>();
+        try {
+            for (int a = 0; a < playerClasses.size(); a++) {
+                for (int b = a + 1; b < playerClasses.size(); b++) {
+                    for (int played = 0; played < gamesPerPairing; played += BATCH_SIZE) {
+                        char first = played % 2 == 0 ? Common.BLACK_PIECE : Common.RED_PIECE;
+                        Batch batch = new Batch(a, b, Math.min(BATCH_SIZE, gamesPerPairing - played), first);
+                        batch.future = pool.submit(batch::play);
+                        batches.add(batch);
+                    }
+                }
+            }
+
+            // Merge the results of every batch into one table
+            Standing[] table = new Standing[playerClasses.size()];
+            for (int i = 0; i < table.length; i++) {
+                table[i] = new Standing(playerClasses.get(i).getName());
+            }
+            for (Batch batch : batches) {
+                Standing[] results = batch.future.get();
+                table[batch.a].add(results[0]);
+                table[batch.b].add(results[1]);
+            }
+            List<Standing> standings = new ArrayList<>(Arrays.asList(table));
+            standings.sort((x, y) -> Double.compare(y.points(), x.points()));
+            return standings;
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * A batch of games between two players
+     */
+    private class Batch {
+        final int a;
+        final int b;
+        final int games;
+        /** Color of the player that moves first in the first game of the batch */
+        final char first;
+        Future<Standing[]> future;
+
+        Batch(int a, int b, int games, char first) {
+            this.a = a;
+            this.b = b;
+            this.games = games;
+            this.first = first;
+        }
+
+        /**
+         * Play the batch on the calling thread. Player a plays black and player b plays red.
+         * @return Results of player a and player b in the batch
+         */
+        Standing[] play() {
+            GameEngine engine = new GameEngine(playerClasses.get(a), playerClasses.get(b));
+            engine.setTimeControl(timeControl);
+            engine.setRecorder(recorder);
+            engine.setNextFirstPlayer(first);
+            try {
+                engine.playGames(games);
+            } finally {
+                engine.close();
+            }
+            Standing black = new Standing(playerClasses.get(a).getName());
+            black.add(engine, Common.BLACK_PIECE);
+            Standing red = new Standing(playerClasses.get(b).getName());
+            red.add(engine, Common.RED_PIECE);
+            return new Standing[] { black, red };
+        }
+    }
+
+    /**
+     * Results of one player in the tournament
+     */
+    public static class Standing {
+        private final String player;
+        private int wins;
+        private int losses;
+        private int ties;
+        private long moves;
+        private long timeUsedNanos;
+        private long timeouts;
+        private final MoveMetrics metrics = new MoveMetrics();
+
+        Standing(String player) {
+            this.player = player;
+        }
+
+        /**
+         * Add the results of a finished batch
+         * @param engine Engine that played the batch
+         * @param color Color this player used in the batch
+         */
+        void add(GameEngine engine, char color) {
+            wins += engine.getWinTotal(color);
+            losses += engine.getWinTotal(Common.swapPlayer(color));
+            ties += engine.getTieTotal();
+            moves += engine.getMoveTotal(color);
+            timeUsedNanos += engine.getTimeUsed(color);
+            timeouts += engine.getTimeoutTotal(color);
+            metrics.merge(engine.getMetrics(color));
+        }
+
+        /**
+         * Add the results of another standing of the same player
+         * @param other Results to add
+         */
+        void add(Standing other) {
+            wins += other.wins;
+            losses += other.losses;
+            ties += other.ties;
+            moves += other.moves;
+            timeUsedNanos += other.timeUsedNanos;
+            timeouts += other.timeouts;
+            metrics.merge(other.metrics);
+        }
+
+        public String getPlayer() {
+            return player;
+        }
+
+        public int getWins() {
+            return wins;
+        }
+
+        public int getLosses() {
+            return losses;
+        }
+
+        public int getTies() {
+            return ties;
+        }
+
+        public int getGames() {
+            return wins + losses + ties;
+        }
+
+        /**
+         * @return Total time used for moves in nanoseconds
+         */
+        public long getTimeUsed() {
+            return timeUsedNanos;
+        }
+
+        /**
+         * @return Number of moves forfeited by running out of time
+         */
+        public long getTimeouts() {
+            return timeouts;
+        }
+
+        /**
+         * @return Wall time, CPU time and allocation of the player's moves
+         */
+        public MoveMetrics getMetrics() {
+            return metrics;
+        }
+
+        /**
+         * @return Average time per move in milliseconds
+         */
+        public double msPerMove() {
+            return moves == 0 ? 0 : timeUsedNanos / 1e6 / moves;
+        }
+
+        /**
+         * @return Tournament points, a win is worth one point and a tie half a point
+         */
+        public double points() {
+            return wins + ties / 2.0;
+        }
+
+        /**
+         * Win percentage, rounded to one decimal place like in {@link GameEngine}
+         * @return Win percentage
+         */
+        public double winPercentage() {
+            int games = wins + losses;
+            if (GameEngine.COUNT_TIES) {
+                games += ties;
+            }
+            return Math.round((wins * 1000f) / games) / 10.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-16s %8d %8d %8d %8d %7.1f%% %10.3f %10.3f %8d", player, getGames(), wins, losses, ties,
+                    winPercentage(), timeUsedNanos / 1e9, msPerMove(), timeouts);
+        }
+    }
+
+    public static void main(String[] args) throws ClassNotFoundException, InterruptedException, IOException {
+        int games = 1000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long moveMillis = 0;
+        long gameMillis = 0;
+        long incrementMillis = 0;
+        Path tableFile = null;
+        Path recordFile = null;
+        List<Class<?>> players = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-games")) {
+                games = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-threads")) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-move")) {
+                moveMillis = Long.parseLong(args[++i]);
+            } else if (args[i].equals("-game")) {
+                gameMillis = Long.parseLong(args[++i]);
+            } else if (args[i].equals("-increment")) {
+                incrementMillis = Long.parseLong(args[++i]);
+            } else if (args[i].equals("-table")) {
+                tableFile = Paths.get(args[++i]);
+            } else if (args[i].equals("-record")) {
+                recordFile = Paths.get(args[++i]);
+            } else {
+                players.add(Class.forName(args[i]));
+            }
+        }
+        if (players.isEmpty()) {
+            for (String player : DEFAULT_PLAYERS) {
+                players.add(Class.forName(player));
+            }
+        }
+
+        TimeControl timeControl = null;
+        if (moveMillis > 0 || gameMillis > 0) {
+            timeControl = new TimeControl(moveMillis, gameMillis, incrementMillis);
+        }
+
+        if (tableFile != null && Files.exists(tableFile)) {
+            long start = System.nanoTime();
+            Solver.loadTable(tableFile);
+            System.out.printf("Loaded %s in %.3f s%n", tableFile, (System.nanoTime() - start) / 1e9);
+        }
+
+        RoundRobin tournament = new RoundRobin(players, games, threads, timeControl);
+        GameRecordWriter recorder = recordFile == null ? null : new GameRecordWriter(recordFile);
+        tournament.setRecorder(recorder);
+        long start = System.nanoTime();
+        List<Standing> standings;
+        try {
+            standings = tournament.run();
+        } finally {
+            if (recorder != null) {
+                recorder.close();
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        if (tableFile != null) {
+            Solver.saveTable(tableFile);
+        }
+
+        System.out.printf("%-16s %8s %8s %8s %8s %8s %10s %10s %8s%n", "Player", "Games", "Wins", "Losses", "Ties",
+                "Win %", "Time (s)", "ms/move", "Timeouts");
+        for (Standing standing : standings) {
+            System.out.println(standing);
+        }
+        System.out.println();
+        System.out.println(MoveMetrics.HEADER);
+        for (Standing standing : standings) {
+            System.out.println(standing.getMetrics().report(standing.getPlayer()));
+        }
+        int totalGames = games * players.size() * (players.size() - 1) / 2;
+        System.out.printf("%d games on %d threads in %.3f s (%.0f games/s)%n", totalGames, threads, seconds, totalGames / seconds);
+    }
+}
@@ -0,0 +1,122 @@
+/**
+ * Statistics of the searches of the {@link Solver}, as returned by
+ * {@link Solver#getStats()}. Nodes and table lookups are always counted. The other
+ * statistics are 0 unless the JVM is started with {@code -Dconnect4.stats=true}
+ * ({@link Solver#STATS}).
+ *
+ * @version 2026-10-18 (Oct 18, 2026)
+ */
+public final class SearchStats {
+    private final long nodes;
+    private final long probes;
+    private final long hits;
+    private final long stores;
+    private final long[] cutoffs;
+    private final int maxDepth;
+    private final long calls;
+    private final long nanos;
+
+    SearchStats(long nodes, long probes, long hits, long stores, long[] cutoffs, int maxDepth, long calls, long nanos) {
+        this.nodes = nodes;
+        this.probes = probes;
+        this.hits = hits;
+        this.stores = stores;
+        this.cutoffs = cutoffs.clone();
+        this.maxDepth = maxDepth;
+        this.calls = calls;
+        this.nanos = nanos;
+    }
+
+    /**
+     * @return The number of positions searched.
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * @return The number of transposition table lookups.
+     */
+    public long getTableProbes() {
+        return probes;
+    }
+
+    /**
+     * @return The number of transposition table lookups that found the position.
+     */
+    public long getTableHits() {
+        return hits;
+    }
+
+    /**
+     * @return The fraction of table lookups that found the position, 0 without lookups.
+     */
+    public double getHitRate() {
+        return probes == 0 ? 0 : (double) hits / probes;
+    }
+
+    /**
+     * @return The number of positions stored in the transposition table.
+     */
+    public long getTableStores() {
+        return stores;
+    }
+
+    /**
+     * @param index The index of a move in the search order, 0 is searched first.
+     * @return The number of beta cutoffs caused by the move at that index.
+     */
+    public long getCutoffs(int index) {
+        return cutoffs[index];
+    }
+
+    /**
+     * @return The number of beta cutoffs.
+     */
+    public long getCutoffs() {
+        long total = 0;
+        for (long c : cutoffs) {
+            total += c;
+        }
+        return total;
+    }
+
+    /**
+     * @return The highest number of moves searched ahead of the position given to the solver.
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * @return The number of calls to solve, solveParallel and customSolve.
+     */
+    public long getCalls() {
+        return calls;
+    }
+
+    /**
+     * @return The time taken by those calls in nanoseconds.
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("nodes=%d probes=%d hits=%d (%.1f%%) stores=%d", nodes, probes, hits,
+                getHitRate() * 100, stores));
+        long total = getCutoffs();
+        sb.append(" cutoffs=").append(total);
+        if (total > 0) {
+            sb.append(" [");
+            for (int i = 0; i < cutoffs.length; i++) {
+                sb.append(i == 0 ? "" : " ").append(String.format("%.1f%%", cutoffs[i] * 100.0 / total));
+            }
+            sb.append(']');
+        }
+        sb.append(String.format(" maxDepth=%d calls=%d time=%.3f ms", maxDepth, calls, nanos / 1e6));
+        return sb.toString();
+    }
+}
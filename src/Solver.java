@@ -1,26 +1,318 @@
-package src;
-
-import java.util.HashMap;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class Solver {
 
     private static final int[] EXPLORE_ORDER = { 3, 2, 4, 1, 5, 0, 6 };
-    private static HashMap<Long, Integer> posMap = new HashMap<>();
+    /** Lowest possible score, nobody can win before their 4th piece. */
+    private static final int MIN_SCORE = -18;
+    /**
+     * Whether the detailed search statistics of {@link #getStats()} are recorded. Set with
+     * {@code -Dconnect4.stats=true}. When it is false, the JIT removes the code that
+     * records them, so they cost nothing.
+     */
+    public static final boolean STATS = Boolean.getBoolean("connect4.stats");
+    /**
+     * The exact scores of {@link #customSolve(BitBoard, int, long)} are multiplied by this,
+     * so the estimates of positions at the depth limit fit strictly between 0 and the
+     * smallest win or loss.
+     */
+    public static final int ESTIMATE_SCALE = 16;
+    /** Turn count of a search without a depth limit. */
+    private static final int NO_HORIZON = 42;
+    /** Number of positions searched between checks of the deadline, a power of 2. */
+    private static final int DEADLINE_CHECK_INTERVAL = 4096;
+    /** Default number of entries in the transposition table (about 64 MB). */
+    private static final int DEFAULT_TABLE_SIZE = 1 << 23;
+    /** Shared by every search, including the threads of {@link #solveParallel(BitBoard, int)}. */
+    private static volatile TranspositionTable table = new TranspositionTable(DEFAULT_TABLE_SIZE);
+    /** Threads that help {@link #solveParallel(BitBoard, int)}. */
+    private static final ExecutorService HELPERS = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "Solver helper");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** Scores of the opening positions, null if there is no book. */
+    private static volatile OpeningBook book = OpeningBook.openDefault();
+
+    /** Search state of every thread that calls the solver. */
+    private static final ThreadLocal<Search> SEARCH = ThreadLocal.withInitial(() -> new Search(EXPLORE_ORDER));
+
+    /**
+     * State of the searches on one thread.
+     */
+    private static final class Search {
+        /** Table used by the current search. */
+        TranspositionTable table = Solver.table;
+        /** Order in which the columns are explored. */
+        final int[] order;
+        /** Set to stop a helper search, its results are thrown away. */
+        volatile boolean stopped;
+        /** Number of positions searched. */
+        long nodes;
+        /** Number of positions looked up in the transposition table. */
+        long probes;
+        /** Number of lookups that found the position. */
+        long hits;
+        /** Number of positions stored in the transposition table (only if {@link #STATS}). */
+        long stores;
+        /** Number of beta cutoffs by the index of the move that caused them (only if {@link #STATS}). */
+        final long[] cutoffs = new long[7];
+        /** Turn count of the position the search started from. */
+        int root;
+        /** Highest number of moves searched ahead of the root (only if {@link #STATS}). */
+        int maxDepth;
+        /** Number of calls to the solver and the time they took (only if {@link #STATS}). */
+        long calls;
+        long callNanos;
+        /** Positions with this many moves are evaluated instead of searched. */
+        int horizon = NO_HORIZON;
+        /** Exact scores are multiplied by this, {@link #ESTIMATE_SCALE} when there is a horizon. */
+        int unit = 1;
+        /** Number of positions evaluated at the horizon, their scores are not exact. */
+        long horizonNodes;
+        /** Whether the search stops at the {@link #deadline}. */
+        boolean timed;
+        /** {@link System#nanoTime()} at which the search stops. */
+        long deadline;
+        /** Moves of every position being searched, by turn count, in the order they are tried. */
+        final int[][] moves = new int[43][7];
+        /** Ordering keys of the {@link #moves}, higher keys are tried first. */
+        final int[][] keys = new int[43][7];
+        /** Last move that caused a cutoff at every turn count, -1 for none. */
+        final int[] killers = new int[43];
+
+        Search(int[] order) {
+            this.order = order;
+            Arrays.fill(killers, -1);
+        }
+    }
+
+    /**
+     * @param bb The position the search starts from.
+     * @return The search state of the calling thread, ready for a new search.
+     */
+    private static Search search(BitBoard bb) {
+        Search search = SEARCH.get();
+        search.root = bb.getTurnCount();
+        search.table = table;
+        search.stopped = false;
+        search.horizon = NO_HORIZON;
+        search.unit = 1;
+        search.timed = false;
+        Arrays.fill(search.killers, -1);
+        return search;
+    }
+
+    /**
+     * @return The number of positions searched by the calling thread since the last
+     *         {@link #resetNodeCount()}, including the helpers of {@link #solveParallel(BitBoard, int)}.
+     */
+    public static long getNodeCount() {
+        return SEARCH.get().nodes;
+    }
+
+    /**
+     * @return The number of transposition table lookups by the calling thread since the
+     *         last {@link #resetNodeCount()}, including the helpers.
+     */
+    public static long getTableProbes() {
+        return SEARCH.get().probes;
+    }
+
+    /**
+     * @return The number of transposition table lookups that found the position, counted
+     *         like {@link #getTableProbes()}.
+     */
+    public static long getTableHits() {
+        return SEARCH.get().hits;
+    }
 
+    /**
+     * Resets the node count and the table lookup counts of the calling thread, the same
+     * as {@link #resetStats()}.
+     */
+    public static void resetNodeCount() {
+        resetStats();
+    }
+
+    /**
+     * The statistics of the searches by the calling thread since the last
+     * {@link #resetStats()}, including the helpers of {@link #solveParallel(BitBoard, int)}.
+     * Nodes and table lookups are always counted, the rest only if {@link #STATS} is set.
+     *
+     * @return A copy of the statistics.
+     */
+    public static SearchStats getStats() {
+        Search search = SEARCH.get();
+        return new SearchStats(search.nodes, search.probes, search.hits, search.stores, search.cutoffs,
+                search.maxDepth, search.calls, search.callNanos);
+    }
+
+    /**
+     * Resets every statistic of the calling thread.
+     */
+    public static void resetStats() {
+        Search search = SEARCH.get();
+        search.nodes = 0;
+        search.probes = 0;
+        search.hits = 0;
+        search.stores = 0;
+        Arrays.fill(search.cutoffs, 0);
+        search.maxDepth = 0;
+        search.calls = 0;
+        search.callNanos = 0;
+    }
+
+    /**
+     * Counts a call to the solver that started at the specified time.
+     */
+    private static void recordCall(Search search, long start) {
+        search.calls++;
+        search.callNanos += System.nanoTime() - start;
+    }
+
+    /**
+     * @return The number of positions stored in the transposition table.
+     */
     public static int tableSize() {
-        return posMap.size();
+        return table.size();
+    }
+
+    /**
+     * Replaces the transposition table with an empty one of the specified size.
+     * Each entry takes 8 bytes. Searches that are running keep using the old table.
+     *
+     * @param entries The number of entries (rounded up to the next prime).
+     */
+    public static void setTableSize(int entries) {
+        table = new TranspositionTable(entries);
+    }
+
+    /**
+     * Removes every position from the transposition table.
+     */
+    public static void clearTable() {
+        table.clear();
+    }
+
+    /**
+     * Saves the transposition table, so a later run can start with it.
+     *
+     * @param file The file to write.
+     */
+    public static void saveTable(Path file) throws IOException {
+        table.save(file);
+    }
+
+    /**
+     * Replaces the transposition table with one saved by {@link #saveTable(Path)}.
+     * Searches that are running keep using the old table.
+     *
+     * @param file The file to read.
+     */
+    public static void loadTable(Path file) throws IOException {
+        table = TranspositionTable.load(file);
+    }
+
+    /**
+     * @return The opening book used by the solver, or null if there is none.
+     */
+    public static OpeningBook getOpeningBook() {
+        return book;
+    }
+
+    /**
+     * Sets the opening book. By default {@link OpeningBook#DEFAULT_FILE} is used if it exists.
+     *
+     * @param openingBook The opening book, or null to solve every position.
+     */
+    public static void setOpeningBook(OpeningBook openingBook) {
+        book = openingBook;
+    }
+
+    /**
+     * @return The score of the position from the opening book, or {@link OpeningBook#MISSING}.
+     */
+    private static int bookScore(BitBoard bb) {
+        OpeningBook openingBook = book;
+        return openingBook == null ? OpeningBook.MISSING : openingBook.get(bb);
+    }
+
+    /**
+     * Scores every move with the opening book.
+     *
+     * @return The score of every move (0 for full columns), or null if the position
+     *         after one of the moves is not in the book.
+     */
+    private static int[] bookScores(BitBoard bb) {
+        OpeningBook openingBook = book;
+        if (openingBook == null || bb.getTurnCount() >= openingBook.getDepth()) {
+            return null;
+        }
+        int[] scores = new int[7];
+        for (int i = 0; i < scores.length; i++) {
+            if (bb.canPlay(i)) {
+                bb.makeMove(i);
+                int score = openingBook.get(bb);
+                bb.undoMove();
+                if (score == OpeningBook.MISSING) { // A winning move, for example.
+                    return null;
+                }
+                scores[i] = -score;
+            }
+        }
+        return scores;
     }
 
     public static int negamax(BitBoard bb, int alpha, int beta) {
+        return negamax(bb, alpha, beta, search(bb));
+    }
+
+    /**
+     * Plays and takes back every move on the given board, so the board must not be
+     * used by anything else during the search. It is unchanged afterwards.
+     */
+    private static int negamax(BitBoard bb, int alpha, int beta, Search search) {
+        search.nodes++;
+        if (search.timed && (search.nodes & (DEADLINE_CHECK_INTERVAL - 1)) == 0 && System.nanoTime() - search.deadline > 0) {
+            search.stopped = true;
+            return 0;
+        }
         if (bb.isDraw()) {
             return 0;
         }
 
+        if (bb.canWinNext()) { // A win in one move needs no search.
+            return search.unit * ((43 - bb.getTurnCount()) / 2);
+        }
+
+        if (STATS && bb.getTurnCount() - search.root > search.maxDepth) {
+            search.maxDepth = bb.getTurnCount() - search.root;
+        }
+
+        if (bb.getTurnCount() >= search.horizon) {
+            search.horizonNodes++;
+            return evaluate(bb, search.unit);
+        }
+        long horizonNodes = search.horizonNodes;
+
         int max = (41 - bb.getTurnCount()) / 2;
-        Integer val = posMap.get(bb.generateKey());
-        if (val != null) {
-            max = val - 19;
+        int val = search.table.get(bb.canonicalKey());
+        search.probes++;
+        if (val != 0) {
+            search.hits++;
+            max = val + MIN_SCORE - 1;
         }
+        max *= search.unit;
         if (beta > max) {
             beta = max;
             if (alpha >= beta) {
@@ -28,44 +320,197 @@ public class Solver {
             }
         }
 
-        for (int i = 0; i < bb.listMoves().length; i++) {
-            if (bb.listMoves()[EXPLORE_ORDER[i]] != -1) {
-                BitBoard b2 = new BitBoard(bb);
-                b2.makeMove(EXPLORE_ORDER[i]);
-                int score = -negamax(b2, -beta, -alpha);
-                if (score >= beta)
-                    return score;
-                if (score > alpha) {
-                    alpha = score;
+        int turn = bb.getTurnCount();
+        int[] moves = search.moves[turn];
+        int count = orderMoves(bb, search, moves, search.keys[turn]);
+        for (int i = 0; i < count; i++) {
+            bb.makeMove(moves[i] / 7);
+            int score = -negamax(bb, -beta, -alpha, search);
+            bb.undoMove();
+            if (search.stopped) { // Result is incomplete, don't store it.
+                return 0;
+            }
+            if (score >= beta) {
+                if (STATS) {
+                    search.cutoffs[i]++;
                 }
+                search.killers[turn] = moves[i];
+                return score;
+            }
+            if (score > alpha) {
+                alpha = score;
             }
         }
 
-        posMap.put(bb.generateKey(), alpha + 19);
+        // Lower values are no real scores and do not fit the table, and scores that
+        // depend on the horizon are not exact. Alpha is an upper bound of the score, so
+        // a scaled one is rounded down.
+        if (alpha >= MIN_SCORE * search.unit && search.horizonNodes == horizonNodes) {
+            search.table.put(bb.canonicalKey(), Math.floorDiv(alpha, search.unit) - MIN_SCORE + 1);
+            if (STATS) {
+                search.stores++;
+            }
+        }
         return alpha;
     }
 
+    /**
+     * Estimates the score of a position that is not searched any deeper: the number
+     * of empty positions where the player to move would complete four in a row, minus
+     * those of the opponent, kept strictly between -unit and unit so that it ranks
+     * below every win and above every loss.
+     */
+    private static int evaluate(BitBoard bb, int unit) {
+        int threats = Long.bitCount(bb.currentThreats()) - Long.bitCount(bb.opponentThreats());
+        return Math.max(-(unit - 1), Math.min(unit - 1, threats));
+    }
+
+    /**
+     * Scores every move with an iterative deepening search: the moves are searched
+     * one move deeper on every iteration, until the scores are exact, the depth limit
+     * is reached or time runs out. The scores of the last complete iteration are
+     * returned, so there is always an answer. Every iteration uses the transposition
+     * table, which only ever holds exact results, so later iterations and searches
+     * reuse the work of earlier ones.
+     * <br>
+     * Before the first iteration is complete the moves are scored by distance from
+     * the center. The scores are the usual scores times {@link #ESTIMATE_SCALE}, and
+     * scores that depend on the depth limit are estimates strictly between
+     * -ESTIMATE_SCALE and ESTIMATE_SCALE, so any proven win ranks above every estimate
+     * and any proven loss below it.
+     *
+     * @param bb          The position. It is unchanged afterwards.
+     * @param maxDepth    The highest number of moves searched ahead.
+     * @param budgetNanos The time the search may take in nanoseconds.
+     * @return The score of every move times ESTIMATE_SCALE (0 for full columns).
+     */
+    public static int[] customSolve(BitBoard bb, int maxDepth, long budgetNanos) {
+        long start = STATS ? System.nanoTime() : 0;
+        Search search = search(bb);
+        search.timed = true;
+        search.deadline = System.nanoTime() + budgetNanos;
+        int[] output = deepeningScores(bb, maxDepth, search);
+        if (STATS) {
+            recordCall(search, start);
+        }
+        return output;
+    }
+
+    /**
+     * The search of {@link #customSolve(BitBoard, int, long)}.
+     */
+    private static int[] deepeningScores(BitBoard bb, int maxDepth, Search search) {
+        int[] output = bookScores(bb);
+        if (output != null) {
+            for (int i = 0; i < output.length; i++) {
+                output[i] *= ESTIMATE_SCALE;
+            }
+            return output;
+        }
+        output = new int[7];
+        for (int i = 0; i < 7; i++) { // Make the winning move if it exists.
+            if (bb.isWinningMove(i)) {
+                output[i] = 18 * ESTIMATE_SCALE;
+                return output;
+            }
+        }
+        int weight = ESTIMATE_SCALE - 1;
+        for (int i : EXPLORE_ORDER) {
+            if (bb.canPlay(i)) {
+                output[i] = weight--;
+            }
+        }
+
+        search.unit = ESTIMATE_SCALE;
+        for (int depth = 1; depth <= maxDepth && bb.getTurnCount() + depth <= NO_HORIZON; depth++) {
+            search.horizon = bb.getTurnCount() + depth;
+            long horizonNodes = search.horizonNodes;
+            int[] scores = new int[7];
+            for (int i = 0; i < scores.length; i++) {
+                if (bb.canPlay(i)) {
+                    bb.makeMove(i);
+                    scores[i] = -negamax(bb, -18 * ESTIMATE_SCALE, 18 * ESTIMATE_SCALE, search);
+                    bb.undoMove();
+                    if (search.stopped) { // Out of time, the iteration is incomplete.
+                        return output;
+                    }
+                }
+            }
+            output = scores;
+            if (search.horizonNodes == horizonNodes) { // Nothing was cut off, the scores are exact.
+                break;
+            }
+        }
+        return output;
+    }
+
+    /**
+     * Sorts the playable moves, best first: by the number of threats the move creates,
+     * then the killer move (the last move that caused a cutoff at this turn). Moves that
+     * are equal stay in the order of the search, center first.
+     *
+     * @param moves Receives the bit of every move, column * 7 + row.
+     * @param keys  Space for the ordering keys.
+     * @return The number of moves.
+     */
+    private static int orderMoves(BitBoard bb, Search search, int[] moves, int[] keys) {
+        int turn = bb.getTurnCount();
+        int killer = search.killers[turn];
+        long playable = bb.playableMoves();
+        int count = 0;
+        for (int column : search.order) {
+            long move = playable & BitBoard.columnMask(column);
+            if (move != 0) {
+                int bit = Long.numberOfTrailingZeros(move);
+                int key = 2 * bb.moveThreats(move) + (bit == killer ? 1 : 0);
+                int i = count++;
+                for (; i > 0 && keys[i - 1] < key; i--) { // Insertion sort, stable
+                    keys[i] = keys[i - 1];
+                    moves[i] = moves[i - 1];
+                }
+                keys[i] = key;
+                moves[i] = bit;
+            }
+        }
+        return count;
+    }
+
     public static int[] customSolve(BitBoard bb) {
+        long start = STATS ? System.nanoTime() : 0;
+        Search search = search(bb);
+        int[] output = exactScores(bb, search);
+        if (STATS) {
+            recordCall(search, start);
+        }
+        return output;
+    }
+
+    /**
+     * The search of {@link #customSolve(BitBoard)}.
+     */
+    private static int[] exactScores(BitBoard bb, Search search) {
+        int[] scores = bookScores(bb);
+        if (scores != null) {
+            return scores;
+        }
         int[] output = new int[] { 0, 0, 0, 0, 0, 0, 0 };
         if (bb.getTurnCount() < 4) { // Early in the game, the center is always best.
             output[3] = 18;
             return output;
         }
-        for (int i = 0; i < bb.listMoves().length; i++) { // Make the winning move if it exists.
-            if (bb.listMoves()[i] != -1 && bb.isWinningMove(i)) {
+        for (int i = 0; i < 7; i++) { // Make the winning move if it exists.
+            if (bb.isWinningMove(i)) {
                 output[i] = 18;
                 return output;
             }
         }
         // Loop through all moves to avoid making the losing move.
-        for (int i = 0; i < bb.listMoves().length; i++) {
-            if (bb.listMoves()[i] != -1) { // If move is possible
+        for (int i = 0; i < 7; i++) {
+            if (bb.canPlay(i)) { // If move is possible
                 bb.makeMove(i);
-                for (int j = 0; j < bb.listMoves().length; j++) {
-                    if (bb.listMoves()[j] != -1) {
-                        if (bb.isWinningMove(j)) { // Check for opponent winning move, avoid.
-                            output[j] = -18;
-                        }
+                for (int j = 0; j < 7; j++) {
+                    if (bb.isWinningMove(j)) { // Check for opponent winning move, avoid.
+                        output[j] = -18;
                     }
                 }
                 if (bb.isDraw()) { // If this move is a draw neutral scoring.
@@ -76,7 +521,7 @@ public class Solver {
         }
         int WEIGHT_SCORE = 13;
         for (int i : EXPLORE_ORDER) {
-            if (bb.listMoves()[i] != -1) {
+            if (bb.canPlay(i)) {
                 output[i] = WEIGHT_SCORE--;
             }
         }
@@ -85,9 +530,9 @@ public class Solver {
                 if (output[i] == -18) {
                     continue;
                 }
-                if (bb.listMoves()[i] != -1) {
+                if (bb.canPlay(i)) {
                     bb.makeMove(i);
-                    output[i] = -negamax(bb, -18, 18);
+                    output[i] = -negamax(bb, -18, 18, search);
                     bb.undoMove();
                 }
             }
@@ -97,6 +542,91 @@ public class Solver {
     }
 
     public static int solve(BitBoard bb, int d) {
+        long start = STATS ? System.nanoTime() : 0;
+        Search search = search(bb);
+        int score = bookScore(bb);
+        if (score == OpeningBook.MISSING) {
+            score = solve(bb, search);
+        }
+        if (STATS) {
+            recordCall(search, start);
+        }
+        return score;
+    }
+
+    /**
+     * Solves a position with several threads (Lazy SMP). Every thread searches the same
+     * position with its own move order and all of them share the transposition table, so
+     * the helpers fill the table with results the calling thread can use. The score is
+     * the one found by the calling thread, which searches in the normal order, so it is
+     * the same as the score from {@link #solve(BitBoard, int)}.
+     *
+     * @param bb      The position to solve. It is not modified.
+     * @param threads The number of threads to use, including the calling thread.
+     * @return The score of the position.
+     */
+    public static int solveParallel(BitBoard bb, int threads) {
+        long start = STATS ? System.nanoTime() : 0;
+        Search search = search(bb);
+        int score = bookScore(bb);
+        if (score != OpeningBook.MISSING) {
+            if (STATS) {
+                recordCall(search, start);
+            }
+            return score;
+        }
+        List<Search> helpers = new ArrayList<>();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int h = 1; h < threads; h++) {
+            Search helper = new Search(helperOrder(h));
+            helper.table = search.table;
+            helper.root = search.root;
+            BitBoard copy = new BitBoard(bb);
+            helpers.add(helper);
+            futures.add(HELPERS.submit(() -> solve(copy, helper)));
+        }
+        try {
+            return solve(bb, search);
+        } finally {
+            for (Search helper : helpers) {
+                helper.stopped = true;
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException ignored) {} // A helper failing does not change the result.
+            }
+            for (Search helper : helpers) {
+                search.nodes += helper.nodes;
+                search.probes += helper.probes;
+                search.hits += helper.hits;
+                search.stores += helper.stores;
+                for (int i = 0; i < search.cutoffs.length; i++) {
+                    search.cutoffs[i] += helper.cutoffs[i];
+                }
+                search.maxDepth = Math.max(search.maxDepth, helper.maxDepth);
+            }
+            if (STATS) {
+                recordCall(search, start);
+            }
+        }
+    }
+
+    /**
+     * @param h The number of the helper thread, starting at 1.
+     * @return {@link #EXPLORE_ORDER} rotated by h columns.
+     */
+    private static int[] helperOrder(int h) {
+        int[] order = new int[EXPLORE_ORDER.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = EXPLORE_ORDER[(i + h) % order.length];
+        }
+        return order;
+    }
+
+    private static int solve(BitBoard bb, Search search) {
         if (bb.getTurnCount() == 0) {
             return 1;
         }
@@ -107,10 +637,13 @@ public class Solver {
             int med = min + (max - min) / 2;
             if (med <= 0 && min / 2 < med) {
                 med = min / 2;
-            } else if (max >= 0 && max / 2 > med) {
+            } else if (med >= 0 && max / 2 > med) {
                 med = max / 2;
             }
-            int r = negamax(bb, med, med + 1);
+            int r = negamax(bb, med, med + 1, search);
+            if (search.stopped) {
+                return 0;
+            }
             if (r <= med) {
                 max = r;
             } else {
@@ -0,0 +1,78 @@
+/**
+ * Time control for the {@link GameEngine}. Every move has a budget, and optionally each
+ * player has a clock for the whole game that gains an increment after every move.
+ * A player that does not return a move within its budget forfeits that turn.
+ *
+ * @version 2026-10-18 (Oct 18, 2026)
+ */
+public class TimeControl {
+    /** Time allowed for one move in milliseconds, 0 for no limit */
+    private final long moveMillis;
+    /** Time allowed for all moves of a game in milliseconds, 0 for no game clock */
+    private final long gameMillis;
+    /** Time added to the game clock after every move in milliseconds */
+    private final long incrementMillis;
+
+    /**
+     * Time control with only a per move budget
+     * @param moveMillis Time allowed for one move in milliseconds
+     */
+    public TimeControl(long moveMillis) {
+        this(moveMillis, 0, 0);
+    }
+
+    /**
+     * @param moveMillis Time allowed for one move in milliseconds, 0 for no limit
+     * @param gameMillis Time allowed for all moves of a game in milliseconds, 0 for no game clock
+     * @param incrementMillis Time added to the game clock after every move in milliseconds
+     */
+    public TimeControl(long moveMillis, long gameMillis, long incrementMillis) {
+        if (moveMillis < 0 || gameMillis < 0 || incrementMillis < 0) {
+            throw new IllegalArgumentException("Times can not be negative");
+        }
+        this.moveMillis = moveMillis;
+        this.gameMillis = gameMillis;
+        this.incrementMillis = incrementMillis;
+    }
+
+    public long getMoveMillis() {
+        return moveMillis;
+    }
+
+    public long getGameMillis() {
+        return gameMillis;
+    }
+
+    public long getIncrementMillis() {
+        return incrementMillis;
+    }
+
+    /**
+     * @return If the players have a clock for the whole game
+     */
+    public boolean hasGameClock() {
+        return gameMillis > 0;
+    }
+
+    /**
+     * Time a player may use for its next move
+     * @param remainingNanos Time left on the player's game clock in nanoseconds
+     * @return Budget for the move in nanoseconds, Long.MAX_VALUE if there is no limit
+     */
+    long moveBudgetNanos(long remainingNanos) {
+        long budget = moveMillis > 0 ? moveMillis * 1_000_000L : Long.MAX_VALUE;
+        if (hasGameClock()) {
+            budget = Math.min(budget, Math.max(remainingNanos, 0));
+        }
+        return budget;
+    }
+
+    @Override
+    public String toString() {
+        String s = moveMillis > 0 ? moveMillis + " ms per move" : "no move limit";
+        if (hasGameClock()) {
+            s += ", " + gameMillis + " ms per game + " + incrementMillis + " ms per move";
+        }
+        return s;
+    }
+}
@@ -0,0 +1,217 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Fixed size transposition table used by the {@link Solver}. The entries are stored in
+ * a primitive array that is allocated once, so memory use stays the same no matter how
+ * many positions are searched.
+ * <br>
+ * Every entry is a single long holding the 49 bit key from {@link BitBoard#canonicalKey()}
+ * in the upper bits and the value in the lowest 8 bits. Entries are read and written
+ * atomically without locks, so several threads can search with the same table: a reader
+ * sees either a complete entry or none, never a key from one entry with the value of another.
+ * The index of a key is the key modulo the number of entries, which is a prime.
+ * <br>
+ * Replacement policy: a new entry always replaces whatever is stored at its index.
+ * <br>
+ * A table can be saved to a file and loaded again, so its contents survive a restart.
+ * File layout (big-endian): magic, version, number of entries and the CRC32 of the
+ * entries as ints, then every entry as a long.
+ */
+class TranspositionTable {
+    /** Gives atomic access to the elements of a long[]. */
+    private static final VarHandle ENTRIES = MethodHandles.arrayElementVarHandle(long[].class);
+    /** Bits of an entry used for the value. */
+    private static final int VALUE_BITS = 8;
+    private static final long VALUE_MASK = (1L << VALUE_BITS) - 1;
+
+    private static final int MAGIC = 0x43345454; // "C4TT"
+    /** Changes whenever the keys or values change meaning. */
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    /** Number of entries read or written at a time. */
+    private static final int CHUNK_ENTRIES = 1 << 16;
+
+    /** Key and value of every entry, 0 for an empty entry */
+    private final long[] entries;
+
+    /**
+     * Creates a table with at least the specified number of entries. The actual
+     * number of entries is the next prime.
+     *
+     * @param entries The requested number of entries.
+     */
+    TranspositionTable(int entries) {
+        this.entries = new long[nextPrime(Math.max(entries, 2))];
+    }
+
+    private TranspositionTable(long[] entries) {
+        this.entries = entries;
+    }
+
+    private static int nextPrime(int n) {
+        while (!isPrime(n)) {
+            n++;
+        }
+        return n;
+    }
+
+    private static boolean isPrime(int n) {
+        if (n < 2 || n % 2 == 0) {
+            return n == 2;
+        }
+        for (int i = 3; (long) i * i <= n; i += 2) {
+            if (n % i == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int index(long key) {
+        return (int) (key % entries.length);
+    }
+
+    /**
+     * Stores a value, replacing any entry with the same index.
+     *
+     * @param key   The 49 bit key of the position.
+     * @param value The value to store, 1 to 255.
+     */
+    void put(long key, int value) {
+        ENTRIES.setOpaque(entries, index(key), (key << VALUE_BITS) | value);
+    }
+
+    /**
+     * @param key The 49 bit key of the position.
+     * @return The value stored for the key, or 0 if there is none.
+     */
+    int get(long key) {
+        long entry = (long) ENTRIES.getOpaque(entries, index(key));
+        if (entry >>> VALUE_BITS == key) {
+            return (int) (entry & VALUE_MASK);
+        }
+        return 0;
+    }
+
+    /**
+     * Removes every entry. Must not be called while a search is using the table.
+     */
+    void clear() {
+        Arrays.fill(entries, 0);
+    }
+
+    /**
+     * Counts the entries in use. This looks at every entry, so it is meant for reporting only.
+     *
+     * @return The number of entries in use.
+     */
+    int size() {
+        int size = 0;
+        for (long entry : entries) {
+            if (entry != 0) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return The total number of entries.
+     */
+    int capacity() {
+        return entries.length;
+    }
+
+    /**
+     * Writes every entry to a file. Searches may keep using the table while it is
+     * saved, entries they change at the same time may or may not be included.
+     *
+     * @param file The file to write, replaced if it exists.
+     */
+    void save(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            CRC32 crc = new CRC32();
+            ByteBuffer chunk = ByteBuffer.allocateDirect(CHUNK_ENTRIES * 8);
+            channel.position(HEADER_SIZE);
+            for (int start = 0; start < entries.length; start += CHUNK_ENTRIES) {
+                int end = Math.min(start + CHUNK_ENTRIES, entries.length);
+                chunk.clear();
+                for (int i = start; i < end; i++) {
+                    chunk.putLong((long) ENTRIES.getOpaque(entries, i));
+                }
+                chunk.flip();
+                crc.update(chunk.duplicate());
+                while (chunk.hasRemaining()) {
+                    channel.write(chunk);
+                }
+            }
+
+            // The checksum is only known now, so the header is written last
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(entries.length).putInt((int) crc.getValue()).flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+        }
+    }
+
+    /**
+     * Reads a table written by {@link #save(Path)}.
+     *
+     * @param file The file to read.
+     * @return The table, with the same number of entries as the saved one.
+     */
+    static TranspositionTable load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(channel, header);
+            if (header.getInt(0) != MAGIC) {
+                throw new IllegalArgumentException("Not a transposition table");
+            }
+            if (header.getInt(4) != VERSION) {
+                throw new IllegalArgumentException("Unsupported transposition table version " + header.getInt(4));
+            }
+            int capacity = header.getInt(8);
+            if (capacity < 2 || channel.size() != HEADER_SIZE + 8L * capacity) {
+                throw new IllegalArgumentException("Transposition table has the wrong size");
+            }
+
+            long[] entries = new long[capacity];
+            CRC32 crc = new CRC32();
+            ByteBuffer chunk = ByteBuffer.allocateDirect(CHUNK_ENTRIES * 8);
+            LongBuffer longs = chunk.asLongBuffer();
+            for (int start = 0; start < capacity; start += CHUNK_ENTRIES) {
+                int count = Math.min(CHUNK_ENTRIES, capacity - start);
+                chunk.clear().limit(count * 8);
+                readFully(channel, chunk);
+                chunk.flip();
+                crc.update(chunk);
+                longs.clear();
+                longs.get(entries, start, count);
+            }
+            if ((int) crc.getValue() != header.getInt(12)) {
+                throw new IllegalArgumentException("Transposition table checksum does not match");
+            }
+            return new TranspositionTable(entries);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+}